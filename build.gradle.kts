@@ -9,6 +9,16 @@ repositories {
     mavenCentral()
 }
 
+// Benchmarks live in their own source set, so JMH never ends up on the game's classpath
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+
+val jmhVersion = "1.37"
+
 dependencies {
     testImplementation(platform("org.junit:junit-bom:5.9.1"))
     testImplementation("org.junit.jupiter:junit-jupiter")
@@ -16,8 +26,26 @@ dependencies {
     // https://mvnrepository.com/artifact/io.github.kostaskougios/cloning
     implementation("io.github.kostaskougios:cloning:1.10.3")
 
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:$jmhVersion")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
 }
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+// Compile the benchmarks with every build, so they can't silently rot
+tasks.check {
+    dependsOn(tasks.named(jmh.classesTaskName))
+}
+
+// Usage: gradle jmh [-Pjmh.includes=BoardBenchmark] [-Pjmh.args="-f 1 -wi 2"]
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks with the GC profiler."
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args("-prof", "gc")
+    project.findProperty("jmh.args")?.let { args(it.toString().split(" ")) }
+    project.findProperty("jmh.includes")?.let { args(it.toString()) }
+}
@@ -0,0 +1,110 @@
+package com.jcvb;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the board primitives every search is built on.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+	
+	@Param({"0", "10", "30", "50"})
+	public int plies;
+	
+	private UltimateBoard ultimateBoard;
+	private Bitboard[] bitboards;
+	private int[] moves;
+	private int moveCount;
+	private Xoroshiro128 random;
+	
+	@Setup
+	public void setup() {
+		ultimateBoard = Positions.create(plies);
+		bitboards = new Bitboard[9];
+		for (int i = 0; i < 9; i++) {
+			bitboards[i] = ultimateBoard.getBoard(i);
+		}
+		moves = new int[81];
+		moveCount = ultimateBoard.getPossibleMoves(moves);
+		random = new Xoroshiro128(plies);
+	}
+	
+	@Benchmark
+	public void checkIfWon(Blackhole blackhole) {
+		for (Bitboard bitboard : bitboards) {
+			blackhole.consume(bitboard.checkIfWon());
+		}
+	}
+	
+	@Benchmark
+	public int getPossibleMoves() {
+		return ultimateBoard.getPossibleMoves(moves);
+	}
+	
+	@Benchmark
+	public List<Integer> getPossibleMovesList() {
+		return ultimateBoard.getPossibleMoves();
+	}
+	
+	/**
+	 * Makes and unmakes every possible move once, as a search does at each node.
+	 */
+	@Benchmark
+	public long makeMove() {
+		long hashes = 0;
+		for (int i = 0; i < moveCount; i++) {
+			ultimateBoard.makeMove(moves[i]);
+			hashes += ultimateBoard.getHash();
+			ultimateBoard.unmakeMove();
+		}
+		return hashes;
+	}
+	
+	/**
+	 * Like {@link #makeMove()}, without the board scores and symmetric hashes, as perft and the MCTS descent do.
+	 */
+	@Benchmark
+	public long makeLeanMove() {
+		long hashes = 0;
+		for (int i = 0; i < moveCount; i++) {
+			ultimateBoard.makeLeanMove(moves[i]);
+			hashes += ultimateBoard.getHash();
+			ultimateBoard.unmakeLeanMove();
+		}
+		return hashes;
+	}
+	
+	@Benchmark
+	public UltimateBoard deepClone() {
+		return ultimateBoard.deepClone();
+	}
+	
+	/**
+	 * One MCTS rollout, reported as rollouts per second.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public GameStatus rollout() {
+		return ultimateBoard.playRandomGame(random);
+	}
+}
@@ -0,0 +1,34 @@
+package com.jcvb;
+
+/**
+ * The fixed positions the benchmarks run on. <p>
+ * The positions are reached by random play with a fixed seed, so every run measures the same boards.
+ */
+final class Positions {
+	
+	private static final long SEED = 20240601;
+	
+	private Positions() {
+	}
+	
+	/**
+	 * Creates a running position after the given number of moves.
+	 * @param plies The number of moves, 0 for the empty board.
+	 * @return The same position for the same number of moves on every call.
+	 */
+	static UltimateBoard create(int plies) {
+		for (long seed = SEED; ; seed++) {
+			UltimateBoard ultimateBoard = new UltimateBoard();
+			Xoroshiro128 random = new Xoroshiro128(seed);
+			
+			while (ultimateBoard.getPly() < plies && !ultimateBoard.isGameOver()) {
+				ultimateBoard.makeMove(ultimateBoard.getRandomMove(random));
+			}
+			
+			// Games which ended early are skipped, the benchmarks need a move to make
+			if (!ultimateBoard.isGameOver()) {
+				return ultimateBoard;
+			}
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.jcvb;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the heuristic and the fixed-depth MiniMax search.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+	
+	@Param({"10", "30", "50"})
+	public int plies;
+	
+	private UltimateBoard ultimateBoard;
+	private CustomHeuristic heuristic;
+	
+	/**
+	 * A separate state, so only the search is run for every depth.
+	 */
+	@State(Scope.Thread)
+	public static class Search {
+		@Param({"4", "6"})
+		public int depth;
+		
+		private TranspositionTable transpositionTable;
+		private MiniMax miniMax;
+		
+		@Setup
+		public void setup(SearchBenchmark benchmark) {
+			transpositionTable = new TranspositionTable(1 << 16);
+			miniMax = new MiniMax(benchmark.heuristic, depth, transpositionTable);
+		}
+		
+		/**
+		 * Every search starts cold, otherwise all but the first would be answered by the table.
+		 */
+		@Setup(Level.Invocation)
+		public void clearTable() {
+			transpositionTable.clear();
+		}
+	}
+	
+	/**
+	 * Reports the searched nodes next to the searches, JMH normalizes them to nodes per second.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Nodes {
+		public long nodes;
+		
+		@Setup(Level.Iteration)
+		public void reset() {
+			nodes = 0;
+		}
+	}
+	
+	@Setup
+	public void setup() {
+		ultimateBoard = Positions.create(plies);
+		heuristic = new CustomHeuristic();
+	}
+	
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public int evaluate() {
+		return heuristic.evaluate(ultimateBoard, ultimateBoard.getCurrentPlayer());
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public int miniMax(Search search, Nodes nodes) {
+		int move = search.miniMax.getBestMove(ultimateBoard);
+		nodes.nodes += search.miniMax.getLastNodes();
+		return move;
+	}
+}
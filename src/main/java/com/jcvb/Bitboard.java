@@ -42,6 +42,122 @@ public class Bitboard {
 	 */
 	private int uniqueId = 0;
 	
+	/**
+	 * Translation of single indices between the bit and the human-readable representation.
+	 */
+	private static final int[] BIT_TO_HUMAN_INDEX = new int[]{0,1,2,5,8,7,6,3,4};
+	private static final int[] HUMAN_TO_BIT_INDEX = new int[]{0,1,2,7,8,3,6,5,4};
+	
+	/**
+	 * All winning lines of a 3x3 board in human-readable order.
+	 */
+	private static final int[] LINES = new int[]{
+			0b000000111, 0b000111000, 0b111000000, // Horizontal
+			0b001001001, 0b010010010, 0b100100100, // Vertical
+			0b100010001, 0b001010100 // Diagonal
+	};
+	
+	/**
+	 * The 8 symmetries of a 3x3 board as permutations of the human-readable indices. <p>
+	 * 0-3: rotations to the right by 0-3 turns <p>
+	 * 4-7: the same rotations followed by a horizontal flip
+	 */
+	static final int[][] PERMUTATIONS = new int[8][9];
+	
+	// The lookup tables below are indexed by the 9-bit occupancy of a single player in human-readable order.
+	
+	/**
+	 * True if the occupancy contains three in a row.
+	 */
+	public static final boolean[] WINS = new boolean[512];
+	
+	/**
+	 * The set of lines (bit i stands for line i) in which the occupancy has exactly two cells.
+	 */
+	public static final byte[] TWO_IN_A_ROW = new byte[512];
+	
+	/**
+	 * The set of lines (bit i stands for line i) which contain at least one cell of the occupancy. <p>
+	 * A line is still open for a player if the opponent doesn't touch it.
+	 */
+	public static final byte[] TOUCHED_LINES = new byte[512];
+	
+	/**
+	 * The occupancy after applying one of the 8 symmetries, indexed by symmetry and occupancy.
+	 */
+	public static final char[][] SYMMETRIES = new char[8][512];
+	
+	/**
+	 * The smallest occupancy reachable through a symmetry, used as representative of the symmetry class.
+	 */
+	public static final char[] CANONICAL = new char[512];
+	
+	/**
+	 * Translations of a whole occupancy between the bit and the human-readable representation.
+	 */
+	private static final char[] BIT_TO_HUMAN = new char[512];
+	private static final char[] HUMAN_TO_BIT = new char[512];
+	
+	static {
+		for (int i = 0; i < 9; i++) {
+			int row = i / 3;
+			int col = i % 3;
+			
+			for (int turns = 0; turns < 4; turns++) {
+				PERMUTATIONS[turns][i] = row * 3 + col;
+				// Horizontal flip swaps the top and the bottom row
+				PERMUTATIONS[turns + 4][i] = (2 - row) * 3 + col;
+				
+				// Rotate one turn to the right
+				int temp = row;
+				row = col;
+				col = 2 - temp;
+			}
+		}
+		
+		for (int mask = 0; mask < 512; mask++) {
+			for (int i = 0; i < LINES.length; i++) {
+				int count = Integer.bitCount(mask & LINES[i]);
+				
+				if (count == 3) {
+					WINS[mask] = true;
+				} else if (count == 2) {
+					TWO_IN_A_ROW[mask] |= (byte) (1 << i);
+				}
+				
+				if (count > 0) {
+					TOUCHED_LINES[mask] |= (byte) (1 << i);
+				}
+			}
+			
+			CANONICAL[mask] = (char) mask;
+			
+			for (int s = 0; s < 8; s++) {
+				char transformed = 0;
+				
+				for (int i = 0; i < 9; i++) {
+					if ((mask & (1 << i)) != 0) {
+						transformed |= (char) (1 << PERMUTATIONS[s][i]);
+					}
+				}
+				
+				SYMMETRIES[s][mask] = transformed;
+				CANONICAL[mask] = (char) Math.min(CANONICAL[mask], transformed);
+			}
+			
+			char bits = 0;
+			
+			for (int i = 0; i < 9; i++) {
+				if ((mask & (1 << i)) != 0) {
+					bits |= (char) (1 << fromHumanToBit(i));
+				}
+			}
+			
+			HUMAN_TO_BIT[mask] = bits;
+			BIT_TO_HUMAN[bits] = (char) mask;
+		}
+	}
+	
 	/**
 	 * Creates a new Bitboard with an empty board.
 	 */
@@ -61,6 +177,20 @@ public class Bitboard {
 		
 	}
 	
+	/**
+	 * Creates a Bitboard from the cells of both players.
+	 * @param uniqueId The index of the board inside the UltimateBoard.
+	 * @param one The cells of player one in human-readable order.
+	 * @param two The cells of player two in human-readable order.
+	 */
+	public Bitboard(int uniqueId, int one, int two) {
+		this.uniqueId = uniqueId;
+		this.board[0] = HUMAN_TO_BIT[one];
+		this.board[1] = HUMAN_TO_BIT[two];
+		
+		checkIfWon();
+	}
+
 	private int getUniqueId() {
 		return uniqueId;
 	}
@@ -115,44 +245,56 @@ public class Bitboard {
 	 * @return A List of integers representing the possible moves.
 	 */
 	public List<Integer> getPossibleMovesWithoutSymmetries(int player) {
-		// Empty fields remain unset.
-		char occupied = (char) (board[0] | board[1]);
+		int own = BIT_TO_HUMAN[board[player]];
+		int other = BIT_TO_HUMAN[board[1 - player]];
+		int occupied = own | other;
 		
-		List<Integer> positions = new ArrayList<>(9-countSetBits(occupied));
+		List<Integer> positions = new ArrayList<>(9 - Integer.bitCount(occupied));
+		
+		// Canonical forms of the boards resulting from the moves kept so far
+		int[] kept = new int[9];
 		
 		for (int i = 0; i < 9; i++) {
-			char mask = (char) (1 << i);
-			char result = (char) (occupied & mask);
-			
-			if (result == 0) {
-				positions.add(fromBitToHuman(i));
+			if ((occupied & (1 << i)) != 0) {
+				continue;
 			}
-		}
-		
-		// Iterates over all possible moves and removes symmetrical ones
-		for (int i = 0; i < positions.size(); i++) {
-			for (int j = i + 1; j < positions.size(); j++) {
-				
-				// Create two temporary bitboards to check for symmetry
-				// Original board is not modified
-				Bitboard temp1 = new Bitboard(this);
-				Bitboard temp2 = new Bitboard(this);
-				
-				// Apply the move to the temporary bitboards
-				temp1.set(positions.get(i), player);
-				temp2.set(positions.get(j), player);
-				
-				// Check if the two bitboards are symmetrical
-				if (areSymmetrical(temp1, temp2)) {
-					positions.remove(j);
-					j--;
+			
+			int key = canonicalKey(own | (1 << i), other);
+			boolean symmetrical = false;
+			
+			for (int j = 0; j < positions.size(); j++) {
+				if (kept[j] == key) {
+					symmetrical = true;
+					break;
 				}
 			}
+			
+			if (!symmetrical) {
+				kept[positions.size()] = key;
+				positions.add(i);
+			}
 		}
 		
 		return positions;
 	}
 	
+	/**
+	 * Returns a representative for the symmetry class of a board with the given occupancies. <p>
+	 * Both occupancies have to be transformed by the same symmetry, so the 8 candidates are compared.
+	 * @param one The cells of the first player in human-readable order.
+	 * @param two The cells of the second player in human-readable order.
+	 * @return The smallest combined occupancy over all symmetries.
+	 */
+	public static int canonicalKey(int one, int two) {
+		int key = Integer.MAX_VALUE;
+		
+		for (int s = 0; s < 8; s++) {
+			key = Math.min(key, (SYMMETRIES[s][one] << 9) | SYMMETRIES[s][two]);
+		}
+		
+		return key;
+	}
+	
 	/**
 	 * Checks if two bitboards are symmetrical. <p>
 	 * The bitboards are considered symmetrical if they are equal after rotating and flipping. <p>
@@ -162,24 +304,8 @@ public class Bitboard {
 	 * @return True if the bitboards are symmetrical, false otherwise.
 	 */
 	public boolean areSymmetrical(Bitboard board1, Bitboard board2) {
-		for (int i = 0; i < 4; i++) {
-			Bitboard temp1 = new Bitboard(board1);
-			Bitboard temp2 = new Bitboard(board2);
-			
-			temp1.rotateRight(i);
-			
-			if (temp1.equals(temp2)) {
-				return true;
-			}
-			
-			temp1.flipHorizontally();
-			
-			if (temp1.equals(temp2)) {
-				return true;
-			}
-		}
-		
-		return false;
+		return canonicalKey(BIT_TO_HUMAN[board1.board[0]], BIT_TO_HUMAN[board1.board[1]])
+				== canonicalKey(BIT_TO_HUMAN[board2.board[0]], BIT_TO_HUMAN[board2.board[1]]);
 	}
 	
 	public int getPositionsSetCount(int player) {
@@ -268,64 +394,54 @@ public class Bitboard {
 	 * @return True if the current player has won, false otherwise.
 	 */
 	public GameStatus checkIfWon() {
-		char draw = 0b111111111;
-		char occupied = (char) (board[0] | board[1]);
-		
-		if ((occupied & draw) == draw) {
-			gameStatus = GameStatus.DRAW;
-			return gameStatus;
-		}
-		
-		
-		// All possible winning positions
-		char[] positions = new char[]{
-				0b111, 0b110001000, 0b1110000, // Horizontal
-				0b11000001, 0b100100010, 0b11100, // Vertical
-				0b100010001, 0b101000100 // Diagonal
-		};
+		gameStatus = getStatus(BIT_TO_HUMAN[board[0]], BIT_TO_HUMAN[board[1]]);
 		
-		for (char pos : positions) {
-			// If the result of a bitwise And is equal to the input, the player has occupied all necessary fields
-			if ((board[0] & pos) == pos) {
-				gameStatus = GameStatus.ONE;
-				return gameStatus;
-			} else if ((board[1] & pos) == pos) {
-				gameStatus = GameStatus.TWO;
-				return gameStatus;
-			}
+		return gameStatus;
+	}
+	
+	/**
+	 * Returns the status of a board with the given occupancies. <p>
+	 * A board which is full and contains a line counts as won.
+	 * @param one The cells of player one in human-readable order.
+	 * @param two The cells of player two in human-readable order.
+	 * @return The status of the board.
+	 */
+	public static GameStatus getStatus(int one, int two) {
+		if (WINS[one]) {
+			return GameStatus.ONE;
+		} else if (WINS[two]) {
+			return GameStatus.TWO;
+		} else if ((one | two) == 0b111111111) {
+			return GameStatus.DRAW;
 		}
 		
-		gameStatus = GameStatus.RUNNING;
-		
-		return gameStatus;
+		return GameStatus.RUNNING;
 	}
 	
+	/**
+	 * Returns the number of open two-in-a-rows of the player minus the ones of the opponent.
+	 * @param player The player to count for.
+	 * @return The difference of the open two-in-a-rows.
+	 */
 	public int partialWinsDifference(GameStatus player) {
-		char[] partialWins = new char[]{
-				// Horizontal
-				0b11, 0b101, 0b110,
-				0b110000000, 0b10001000, 0b110000000,
-				0b1100000, 0b110000, 0b1010000,
-				//Vertical
-				0b10000001, 0b1000001, 0b11000000,
-				0b100000010, 0b100100000, 0b100010,
-				0b1100, 0b11000, 0b10100,
-				//Diagonal
-				0b100010000, 0b10001, 0b100000001,
-				0b101000000, 0b1000001, 0b100000001
-		};
-		
-		int accu = 0;
+		int own = BIT_TO_HUMAN[board[player.playerNumber()]];
+		int other = BIT_TO_HUMAN[board[player.next().playerNumber()]];
 		
-		for (int i = 0; i < partialWins.length; i++) {
-			if ((board[0] & partialWins[i]) == partialWins[i]) {
-				return accu++;
-			} else if ((board[1] & partialWins[i]) == partialWins[i]) {
-				return accu--;
-			}
-		}
+		return partialWinsDifference(own, other);
+	}
+	
+	/**
+	 * Returns the number of open two-in-a-rows of one occupancy minus the ones of the other. <p>
+	 * A two-in-a-row is open if the third cell of the line is still empty.
+	 * @param own The cells of the player in human-readable order.
+	 * @param other The cells of the opponent in human-readable order.
+	 * @return The difference of the open two-in-a-rows.
+	 */
+	public static int partialWinsDifference(int own, int other) {
+		int ownOpen = TWO_IN_A_ROW[own] & ~TOUCHED_LINES[other] & 0xFF;
+		int otherOpen = TWO_IN_A_ROW[other] & ~TOUCHED_LINES[own] & 0xFF;
 		
-		return accu;
+		return Integer.bitCount(ownOpen) - Integer.bitCount(otherOpen);
 	}
 	
 	/**
@@ -375,16 +491,7 @@ public class Bitboard {
 	 */
 	public void flipHorizontally() {
 		for (int i = 0; i < 2; i++) {
-			// Extracts the bits that need to be flipped
-			byte zero = (byte) ((board[i] & 0b1) << 6);
-			byte one = (byte) ((board[i] & 0b10) << 4);
-			byte two = (byte) ((board[i] & 0b100) << 2);
-			byte middle = (byte) (board[i] & 0b110001000);
-			byte six = (byte) ((board[i] & 0b1000000) >> 6);
-			byte seven = (byte) ((board[i] & 0b100000) >> 4);
-			byte eight = (byte) ((board[i] & 0b10000) >> 2);
-			
-			board[i] = (char) (zero | one | two | middle | six | seven | eight );
+			board[i] = HUMAN_TO_BIT[SYMMETRIES[4][BIT_TO_HUMAN[board[i]]]];
 		}
 	}
 	
@@ -428,9 +535,7 @@ public class Bitboard {
 	 * @return the translation
 	 */
 	public static int fromBitToHuman(int i) {
-		// Translation from bit representation to human-readable
-		int[] translation = new int[]{0,1,2,5,8,7,6,3,4};
-		return translation[i];
+		return BIT_TO_HUMAN_INDEX[i];
 	}
 	
 	/**
@@ -439,9 +544,7 @@ public class Bitboard {
 	 * @return the translation
 	 */
 	public static int fromHumanToBit(int i) {
-		// Translation from human-readable to bit representation
-		int[] translation = new int[]{0,1,2,7,8,3,6,5,4};
-		return translation[i];
+		return HUMAN_TO_BIT_INDEX[i];
 	}
 	
 	/**
@@ -509,7 +612,7 @@ public class Bitboard {
 	}
 	
 	public String lineToString( int line){
-		assert line > 0 && line <= 3;
+		assert line >= 0 && line < 3;
 		StringBuilder sb = new StringBuilder();
 //		line++;
 		int[][] lookup = new int[][]{
@@ -0,0 +1,88 @@
+package com.jcvb;
+
+/**
+ * Plays the move of an {@link OpeningBook} where the book knows the position and lets another player search
+ * everywhere else. Wraps any player, the name stays that of the wrapped player.
+ */
+public class BookPlayer implements Player {
+	
+	private final Player player;
+	private final OpeningBook book;
+	
+	/**
+	 * The book entry of the last move, null if the wrapped player searched.
+	 */
+	private OpeningBook.Entry lastEntry;
+	private int bookMoves;
+	
+	public BookPlayer(Player player, OpeningBook book) {
+		this.player = player;
+		this.book = book;
+	}
+	
+	/**
+	 * Wraps the player if there is a book.
+	 * @param book The book or null.
+	 * @return The wrapped player or the player itself if there is no book.
+	 */
+	public static Player withBook(Player player, OpeningBook book) {
+		return book == null ? player : new BookPlayer(player, book);
+	}
+	
+	@Override
+	public void play(UltimateBoard ultimateBoard) {
+		lastEntry = book.lookup(ultimateBoard);
+		if (lastEntry == null) {
+			player.play(ultimateBoard);
+			return;
+		}
+		
+		bookMoves++;
+		ultimateBoard.makeMove(lastEntry.move());
+	}
+	
+	/**
+	 * @return The number of moves played from the book.
+	 */
+	public int getBookMoves() {
+		return bookMoves;
+	}
+	
+	public Player getPlayer() {
+		return player;
+	}
+	
+	@Override
+	public String getName() {
+		return player.getName();
+	}
+	
+	@Override
+	public String getSymbol() {
+		return player.getSymbol();
+	}
+	
+	/**
+	 * The parameter of the wrapped player and the book, so results show which games used one.
+	 */
+	@Override
+	public String getParam() {
+		return player.getParam() + " Book: " + book.getFile().getFileName();
+	}
+	
+	@Override
+	public void setQuiet(boolean quiet) {
+		player.setQuiet(quiet);
+	}
+	
+	/**
+	 * Book moves report no nodes and the depth and score the book was built with.
+	 */
+	@Override
+	public SearchInfo getSearchInfo() {
+		if (lastEntry == null) {
+			return player.getSearchInfo();
+		}
+		return new SearchInfo(0, lastEntry.depth(), Double.NaN, lastEntry.score(), -1);
+	}
+}
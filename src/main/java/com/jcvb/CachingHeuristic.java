@@ -0,0 +1,107 @@
+package com.jcvb;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the evaluations of another heuristic by the canonical hash of the position, which symmetric
+ * positions share (see {@link UltimateBoard#getCanonicalHash()}), so the wrapped heuristic has to be symmetric. <p>
+ * The cache is a fixed-size table in which every position has a single slot, a new position simply
+ * overwrites the old one. Like the {@link TranspositionTable} it stores the key XORed with the value,
+ * so it can be shared by search threads without locks: a torn slot fails the verification and counts as a miss. <p>
+ * The wrapped heuristic has to evaluate a position the same way every time it is asked,
+ * small random terms such as the jiggle of {@link CustomHeuristic} are kept from the first evaluation.
+ */
+public class CachingHeuristic implements Heuristic {
+	
+	/**
+	 * Added to the key when evaluating for player two, both views are cached separately.
+	 */
+	private static final long PLAYER_TWO = Zobrist.mix(Zobrist.SIDE);
+	
+	/**
+	 * Marks a used slot, so that an evaluation of 0 can be told apart from an empty slot.
+	 */
+	private static final long VALID = 1L << 32;
+	
+	private final Heuristic heuristic;
+	private final long[] keys;
+	private final long[] values;
+	private final int mask;
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	
+	/**
+	 * @param heuristic The heuristic to cache.
+	 * @param size The number of slots, rounded down to a power of two. Every slot takes 16 bytes.
+	 */
+	public CachingHeuristic(Heuristic heuristic, int size) {
+		int slots = Integer.highestOneBit(Math.max(size, 1));
+		this.heuristic = heuristic;
+		this.keys = new long[slots];
+		this.values = new long[slots];
+		this.mask = slots - 1;
+	}
+	
+	@Override
+	public int evaluate(UltimateBoard ultimateBoard, GameStatus player) {
+		long key = ultimateBoard.getCanonicalHash() ^ (player == GameStatus.TWO ? PLAYER_TWO : 0);
+		int index = (int) key & mask;
+		long value = values[index];
+		
+		if ((value & VALID) != 0 && (keys[index] ^ value) == key) {
+			hits.increment();
+			return (int) value;
+		}
+		
+		misses.increment();
+		int evaluation = heuristic.evaluate(ultimateBoard, player);
+		value = (evaluation & 0xFFFFFFFFL) | VALID;
+		values[index] = value;
+		keys[index] = key ^ value;
+		return evaluation;
+	}
+	
+	@Override
+	public void newSearch() {
+		heuristic.newSearch();
+	}
+	
+	/**
+	 * @return The number of evaluations answered from the cache.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	/**
+	 * @return The number of evaluations passed on to the wrapped heuristic.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	/**
+	 * @return The share of evaluations answered from the cache, 0 if there were none.
+	 */
+	public double getHitRate() {
+		long hitCount = getHits();
+		long total = hitCount + getMisses();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+	
+	/**
+	 * Removes all entries and resets the counters, e.g. after changing the wrapped heuristic.
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0);
+		Arrays.fill(values, 0);
+		hits.reset();
+		misses.reset();
+	}
+	
+	public Heuristic getHeuristic() {
+		return heuristic;
+	}
+}
@@ -1,77 +1,109 @@
 package com.jcvb;
 
 public class CustomHeuristic implements Heuristic{
-	private GameStatus player;
-	public CustomHeuristic(GameStatus player){
-		this.player = player;
+	
+	/**
+	 * Draws the seed of every search, so the jiggle differs between searches but not within one.
+	 */
+	private final Xoroshiro128 seeds;
+	private long searchSeed;
+	
+	public CustomHeuristic(){
+		this(Xoroshiro128.current().nextLong());
+	}
+	
+	/**
+	 * @param seed The seed of the random jiggle, games with the same seed are evaluated the same.
+	 */
+	public CustomHeuristic(long seed){
+		this.seeds = new Xoroshiro128(seed);
+		this.searchSeed = seeds.nextLong();
 	}
+	
 	/**
 	 * Returns an evaluation of an Ultimate Board.
 	 * A player gets points for having more positions than their opponent marked in a small board. The difference has to be greater than one
 	 * A player gets points deducted for having less positions than their opponent marked in a small board. The difference has to be greater than one
 	 * A player gets points for having more than one position in a row marked in a small board.
 	 * A player gets points for having more than one position in a row on the ultimate board marked.
+	 * <p>
+	 * The terms of the small boards are maintained by the board itself (see {@link UltimateBoard#getBoardScore(int)}),
+	 * the terms of the ultimate board are looked up from its won boards, so an evaluation doesn't depend on the number of boards.
 	 *
 	 * @return The Value of the board
 	 * @param ultimateBoard The ultimate board to be evaluated
+	 * @param player The player whose view is evaluated, one instance can evaluate for both players
 	 * */
 	@Override
-	public int evaluate(UltimateBoard ultimateBoard, GameStatus ignored){
-		int value = 0;
-		
-		// Opponent has won
-		if(ultimateBoard.checkGameWon(player) == player)
-			return Integer.MAX_VALUE;
+	public int evaluate(UltimateBoard ultimateBoard, GameStatus player){
+		GameStatus winner = ultimateBoard.getWinner();
 		
 		// Player has won
-		if (ultimateBoard.checkGameWon(player.next()) == player.next() || ultimateBoard.checkGameWon(player.next()) == GameStatus.DRAW)
-			return Integer.MIN_VALUE;
+		if(winner == player)
+			return WIN;
 		
+		// Opponent has won or the game is a draw
+		if (winner == player.next() || winner == GameStatus.DRAW)
+			return -WIN;
 		
-		for (int i = 0; i < 9; i++) {
-			Bitboard curBoard = ultimateBoard.getBoard(i);
-			
-			// Difference in marked positions per small board
-			int positionsSetDifference = curBoard.getPositionsSetCount(player.playerNumber()) - curBoard.getPositionsSetCount(player.next().playerNumber());
-
-			value += positionsSetDifference * 10;
-
-			GameStatus res = curBoard.checkIfWon();
-			
-			// Reward wins on small board
-			if(res == player){
-				value+= 300;
-			}
-			// Punish losses on small boards
-			if(res == player.next()){
-				value-=30;
-			}
-			// punish draws
-			if(res == GameStatus.DRAW){
-				value-=5;
-			}
-			
-			// Reward for difference in partial wins on small board
-			value+= curBoard.partialWinsDifference(player)*30;
-
-
-			// Reward for playing the center on a small board
-			if(curBoard.getPos(4) == player){
-				value++;
-			}
-		}
+		int own = player.playerNumber();
+		int other = player.next().playerNumber();
+		int ownWon = ultimateBoard.getWonBoards(own);
+		int otherWon = ultimateBoard.getWonBoards(other);
+		
+		int value = ultimateBoard.getBoardScore(own);
 		
 		// prioritize the center
-		if(ultimateBoard.getBoard(4).getGameStatus() == player){
+		if((ownWon & (1 << 4)) != 0){
 			value += 200;
 		}
 		
-		// Reward for more partial wins than the opponent on large game
-		value += ultimateBoard.partialWinsDifference(player) * 300;
+		// Reward for more partial wins than the opponent on large game, no line is complete while the game is running
+		value += (Integer.bitCount(Bitboard.TWO_IN_A_ROW[ownWon] & 0xFF) - Integer.bitCount(Bitboard.TWO_IN_A_ROW[otherWon] & 0xFF)) * 300;
 
-		// random jiggle
-		value+= (int) (Math.random()*5);
+		// random jiggle, the same for a position and its symmetries throughout a search so transpositions agree
+		value += (int) ((Zobrist.mix(ultimateBoard.getCanonicalHash() ^ searchSeed) >>> 1) % 5);
 
 		return value;
 	}
+	
+	/**
+	 * Draws a new jiggle for the next search.
+	 */
+	@Override
+	public void newSearch() {
+		searchSeed = seeds.nextLong();
+	}
+	
+	/**
+	 * The terms of a single small board from the view of the player with the cells own.
+	 * @param own The cells of the player in human-readable order.
+	 * @param other The cells of the opponent in human-readable order.
+	 */
+	static int boardScore(int own, int other) {
+		// Difference in marked positions per small board
+		int value = (Integer.bitCount(own) - Integer.bitCount(other)) * 10;
+		
+		// Reward wins on small board
+		if (Bitboard.WINS[own]) {
+			value += 300;
+		}
+		// Punish losses on small boards
+		else if (Bitboard.WINS[other]) {
+			value -= 30;
+		}
+		// punish draws
+		else if ((own | other) == UltimateBoard.BOARD_MASK) {
+			value -= 5;
+		}
+		
+		// Reward for difference in partial wins on small board
+		value += Bitboard.partialWinsDifference(own, other) * 30;
+		
+		// Reward for playing the center on a small board
+		if ((own & (1 << 4)) != 0) {
+			value++;
+		}
+		return value;
+	}
 }
@@ -1,50 +1,93 @@
 package com.jcvb;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public class Game {
 	private Player one;
 	private Player two;
 	int oneMoves;
-	long oneMs;
+	long oneNanos;
 	int twoMoves;
-	long twoMs;
+	long twoNanos;
 	private UltimateBoard ultimateBoard = new UltimateBoard();
+	private final List<MoveTelemetry> telemetry = new ArrayList<>();
+	private final boolean quiet;
 	public Game(Player one, Player two) {
+		this(one, two, false);
+	}
+	
+	/**
+	 * @param quiet True to print neither the board nor who is thinking.
+	 */
+	public Game(Player one, Player two, boolean quiet) {
+		this.quiet = quiet;
 		this.one = one;
 		this.two = two;
 		this.oneMoves = 0;
 		this.twoMoves = 0;
-		this.oneMs = 0;
-		this.twoMs = 0;
+		this.oneNanos = 0;
+		this.twoNanos = 0;
 	}
 	
 	public GameStatus run() {
 		GameStatus status = ultimateBoard.getWinner();
 		while (status == GameStatus.RUNNING) {
-			System.out.println(one.getName()+" is thinking");
-			long tempMs = System.currentTimeMillis();
-			one.play(ultimateBoard);
-			oneMs += System.currentTimeMillis() - tempMs;
+			if (!quiet) System.out.println(one.getName()+" is thinking");
+			oneNanos += play(one, GameStatus.ONE);
 			oneMoves++;
 			status = ultimateBoard.getWinner();
 			if (status != GameStatus.RUNNING) {
 				break;
 			}
-			System.out.println(two.getName()+" is thinking");
-			tempMs = System.currentTimeMillis();
-			two.play(ultimateBoard);
-			twoMs += System.currentTimeMillis() - tempMs;
+			if (!quiet) System.out.println(two.getName()+" is thinking");
+			twoNanos += play(two, GameStatus.TWO);
 			twoMoves++;
 			status = ultimateBoard.getWinner();
-			System.out.println(ultimateBoard);
+			if (!quiet) System.out.println(ultimateBoard);
 		}
 		return status;
 	}
+	
+	/**
+	 * Lets the player make its move and records how long it took and what it searched.
+	 * @return The wall time of the move in nanoseconds.
+	 */
+	private long play(Player player, GameStatus color) {
+		int ply = ultimateBoard.getPly();
+		long start = System.nanoTime();
+		player.play(ultimateBoard);
+		long nanos = System.nanoTime() - start;
+		
+		telemetry.add(new MoveTelemetry(ply, color, ultimateBoard.getLastMove(), nanos, player.getSearchInfo()));
+		return nanos;
+	}
 
+	/**
+	 * @return The moves of the game so far, one byte per move.
+	 */
+	public byte[] getMoves() {
+		return ultimateBoard.getMoves();
+	}
+	
+	/**
+	 * @return Timing and search statistics of every move so far, in the order they were played.
+	 */
+	public List<MoveTelemetry> getTelemetry() {
+		return Collections.unmodifiableList(telemetry);
+	}
+	
 	public Stats getStats(){
-		return new Stats(one.getName(), two.getName(), ultimateBoard.getWinner(), oneMoves, twoMoves, one.getParam(), two.getParam(), oneMs/oneMoves, twoMs/twoMoves);
+		return new Stats(one.getName(), two.getName(), ultimateBoard.getWinner(), oneMoves, twoMoves, one.getParam(), two.getParam(), averageMs(oneNanos, oneMoves), averageMs(twoNanos, twoMoves));
+	}
+	
+	/**
+	 * The stats may be asked for before a player has moved.
+	 */
+	private static long averageMs(long nanos, int moves) {
+		return moves == 0 ? 0 : nanos / moves / 1_000_000;
 	}
 
 
 }
-
-
@@ -1,83 +1,297 @@
 package com.jcvb;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class GameLogger {
+/**
+ * Writes game results to a CSV file and, if logged, the telemetry of every move to a second CSV file
+ * next to it (see {@link #getMovesFile()}). <p>
+ * Results can be logged from any thread, they are put into a lock-free queue and written by a
+ * single background thread, which keeps the file open and flushes in batches: as soon as
+ * {@link #BATCH_SIZE} lines are waiting or after {@link #FLUSH_INTERVAL_MS} at the latest.
+ * {@link #close()} writes everything still queued, a shutdown hook does the same if the JVM exits first.
+ */
+public class GameLogger implements AutoCloseable {
     private static final String BASE_FILENAME = "game_results_";
     private static final String FILE_EXTENSION = ".csv";
-    private static int currentFileNumber = 0;
+    static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    static final String HEADER = "Game Number,Player 1 Name,Player 2 Name,Player 1 Moves,Player 2 Moves,Player 1 Parameter,Player 2 Parameter,Player 1 Avg Time,Player 2 Avg Time,Winner,Timestamp\n";
+    static final String MOVES_HEADER = "Game Number,Ply,Player,Move,Time (ns),Nodes,Depth,TT Hit Rate,Score,Tree Size\n";
 
-    static {
-        initializeCurrentFileNumber();
+    static final int BATCH_SIZE = 64;
+    static final long FLUSH_INTERVAL_MS = 1000;
+
+    private final Path file;
+    private final Path movesFile;
+    private final BufferedWriter writer;
+    private BufferedWriter movesWriter;  // Created by the writer thread when the first moves arrive
+    private final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<String> movesQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Thread writerThread;
+    private final Thread shutdownHook;
+    private volatile boolean closed;
+
+    /**
+     * Creates the log file, writes the header and starts the writer thread.
+     * @param file The file to write, an existing file is overwritten.
+     * @throws IOException If the file can't be created.
+     */
+    public GameLogger(Path file) throws IOException {
+        this.file = file;
+        String name = file.getFileName().toString();
+        this.movesFile = file.resolveSibling((name.endsWith(FILE_EXTENSION) ? name.substring(0, name.length() - FILE_EXTENSION.length()) : name) + "_moves" + FILE_EXTENSION);
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        writeHeader(writer);
+
+        this.writerThread = new Thread(this::writeLoop, "GameLogger");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+
+        this.shutdownHook = new Thread(this::close, "GameLogger shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Creates a logger for a new file in the working directory, numbered one higher than the existing ones.
+     * @return The logger or null if the file couldn't be created.
+     */
+    public static GameLogger createNewLogFile() {
+        Path file = Path.of(BASE_FILENAME + (findLastFileNumber() + 1) + FILE_EXTENSION);
+        try {
+            GameLogger logger = new GameLogger(file);
+            System.out.printf("Writing Log to %s\n", file);
+            return logger;
+        } catch (IOException e) {
+            System.err.println("Error creating new log file: " + e.getMessage());
+            return null;
+        }
     }
 
-    private static void initializeCurrentFileNumber() {
+    private static int findLastFileNumber() {
         File directory = new File(".");
         File[] files = directory.listFiles((dir, name) -> name.startsWith(BASE_FILENAME) && name.endsWith(FILE_EXTENSION));
 
-        if (files != null && files.length > 0) {
-            Pattern pattern = Pattern.compile(BASE_FILENAME + "(\\d+)" + FILE_EXTENSION);
+        if (files == null || files.length == 0) {
+            return 0;
+        }
+
+        Pattern pattern = Pattern.compile(BASE_FILENAME + "(\\d+)" + FILE_EXTENSION);
 
-            currentFileNumber = Arrays.stream(files)
-                    .map(File::getName)
-                    .map(pattern::matcher)
-                    .filter(Matcher::find)
-                    .map(matcher -> Integer.parseInt(matcher.group(1)))
-                    .max(Comparator.naturalOrder())
-                    .orElse(0);
+        return Arrays.stream(files)
+                .map(File::getName)
+                .map(pattern::matcher)
+                .filter(Matcher::find)
+                .map(matcher -> Integer.parseInt(matcher.group(1)))
+                .max(Comparator.naturalOrder())
+                .orElse(0);
+    }
+
+    /**
+     * Queues a result for writing. Safe to call from any thread, never blocks on the file.
+     */
+    public void logGameResult(int gameNumber, Stats stats) {
+        if (closed) {
+            System.err.println("Game " + gameNumber + " logged after the log was closed");
+            return;
+        }
+
+        queue.add(formatLine(gameNumber, stats, LocalDateTime.now()));
+        if (pending.incrementAndGet() >= BATCH_SIZE) {
+            LockSupport.unpark(writerThread);
         }
     }
 
-    public static void createNewLogFile() {
-        currentFileNumber++;
-        String filename = getCurrentFilename();
-        try (FileWriter writer = new FileWriter(filename)) {
-            writeHeader(writer);
-            System.out.printf("Writing Log to %s\n", filename);
-        } catch (IOException e) {
-            System.err.println("Error creating new log file: " + e.getMessage());
+    /**
+     * Queues the telemetry of all moves of a game for writing to the moves file. Safe to call from any thread.
+     * @param stats The result of the game, for the player names.
+     */
+    public void logMoves(int gameNumber, Stats stats, List<MoveTelemetry> moves) {
+        if (closed) {
+            System.err.println("Moves of game " + gameNumber + " logged after the log was closed");
+            return;
+        }
+
+        movesQueue.add(formatMoves(gameNumber, stats, moves));
+        if (pending.incrementAndGet() >= BATCH_SIZE) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Formats a result as a line of the CSV file, including the line separator.
+     */
+    static String formatLine(int gameNumber, Stats stats, LocalDateTime timestamp) {
+        String resultString = (stats.winner() == GameStatus.ONE) ? stats.player1_name() :
+                (stats.winner() == GameStatus.TWO) ? stats.player2_name() : "Draw";
+
+        return gameNumber + "," + quote(stats.player1_name()) + "," + quote(stats.player2_name()) + ","
+                + stats.player1_moves() + "," + stats.player2_moves() + ","
+                + quote(stats.player1_param()) + "," + quote(stats.player2_param()) + ","
+                + stats.player1_avg_ms() + "," + stats.player2_avg_ms() + ","
+                + quote(resultString) + "," + timestamp.format(TIMESTAMP_FORMAT) + System.lineSeparator();
+    }
+
+    /**
+     * Formats the moves of a game as lines of the moves file, unknown values stay empty.
+     */
+    static String formatMoves(int gameNumber, Stats stats, List<MoveTelemetry> moves) {
+        StringBuilder sb = new StringBuilder();
+        for (MoveTelemetry move : moves) {
+            SearchInfo search = move.search();
+            sb.append(gameNumber).append(',')
+                    .append(move.ply()).append(',')
+                    .append(quote(move.player() == GameStatus.ONE ? stats.player1_name() : stats.player2_name())).append(',')
+                    .append(move.move()).append(',')
+                    .append(move.nanos()).append(',')
+                    .append(search.nodes() < 0 ? "" : search.nodes()).append(',')
+                    .append(search.depth() < 0 ? "" : search.depth()).append(',')
+                    .append(Double.isNaN(search.ttHitRate()) ? "" : String.format(Locale.ROOT, "%.4f", search.ttHitRate())).append(',')
+                    .append(search == SearchInfo.NONE ? "" : search.score()).append(',')
+                    .append(search.treeSize() < 0 ? "" : search.treeSize())
+                    .append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Quotes free text containing commas or quotes, e.g. parameters with decimal commas.
+     */
+    private static String quote(String text) {
+        if (text == null || (text.indexOf(',') == -1 && text.indexOf('"') == -1)) {
+            return text;
         }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return The file of {@link #logMoves(int, Stats, List)}, named like the log file with "_moves" appended.
+     * It is only created once moves are logged.
+     */
+    public Path getMovesFile() {
+        return movesFile;
     }
 
-    public static void logGameResult(int gameNumber, Stats stats) {
-        String filename = getCurrentFilename();
+    /**
+     * The thread only wakes up when a batch is full, the flush interval has passed or the logger is closed,
+     * so every wake-up writes and flushes a whole batch.
+     */
+    private void writeLoop() {
+        while (true) {
+            boolean stopping = closed;
 
-        try (FileWriter writer = new FileWriter(filename, true)) {
-            String resultString = (stats.winner() == GameStatus.ONE) ? stats.player1_name() :
-                    (stats.winner() == GameStatus.TWO) ? stats.player2_name() : "Draw";
+            if (drain()) {
+                flush();
+            }
 
-            String line = String.format("%d,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s%n",
-                    gameNumber, stats.player1_name(), stats.player2_name(),
-                    stats.player1_moves(), stats.player2_moves(),
-                    stats.player1_param(), stats.player2_param(),
-                    stats.player1_avg_ms(), stats.player2_avg_ms(),
-                    resultString, getCurrentTimestamp());
+            // Everything logged before closed was set has been drained above
+            if (stopping) {
+                return;
+            }
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS));
+        }
+    }
 
-            writer.write(line);
+    /**
+     * Moves all queued lines into the buffered writer.
+     * @return True if anything was written.
+     */
+    private boolean drain() {
+        boolean wrote = false;
+        String line;
+        while ((line = queue.poll()) != null) {
+            pending.decrementAndGet();
+            try {
+                writer.write(line);
+            } catch (IOException e) {
+                System.err.println("Error writing to log file: " + e.getMessage());
+            }
+            wrote = true;
+        }
+        while ((line = movesQueue.poll()) != null) {
+            pending.decrementAndGet();
+            try {
+                if (movesWriter == null) {
+                    movesWriter = Files.newBufferedWriter(movesFile, StandardCharsets.UTF_8);
+                    movesWriter.write(MOVES_HEADER);
+                }
+                movesWriter.write(line);
+            } catch (IOException e) {
+                System.err.println("Error writing to moves file: " + e.getMessage());
+            }
+            wrote = true;
+        }
+        return wrote;
+    }
+
+    private void flush() {
+        try {
+            writer.flush();
+            if (movesWriter != null) {
+                movesWriter.flush();
+            }
         } catch (IOException e) {
             System.err.println("Error writing to log file: " + e.getMessage());
         }
     }
 
-    private static String getCurrentFilename() {
-        return BASE_FILENAME + currentFileNumber + FILE_EXTENSION;
-    }
+    /**
+     * Writes all queued results and closes the file. Results logged after this call are rejected,
+     * results logged concurrently to it may be lost.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writerThread);
 
-    private static void writeHeader(FileWriter writer) throws IOException {
-        writer.write("Game Number,Player 1 Name,Player 2 Name,Player 1 Moves, Player 2 Moves, PlPlayer 1 Parameter,Player 2 Parameter,Player 1 Avg Time,Player 2 Avg Time,Winner,Timestamp\n");
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            writer.close();
+            if (movesWriter != null) {
+                movesWriter.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing log file: " + e.getMessage());
+        }
+
+        // Not possible while the JVM is already shutting down, then the hook is running anyway
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException ignored) {
+            }
+        }
     }
 
-    private static String getCurrentTimestamp() {
-        LocalDateTime now = LocalDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        return now.format(formatter);
+    private static void writeHeader(BufferedWriter writer) throws IOException {
+        writer.write(HEADER);
     }
 }
@@ -0,0 +1,43 @@
+package com.jcvb;
+
+/**
+ * A finished game with all its moves, as stored by {@link GameRecordWriter}. <p>
+ * Record layout (big endian), preceded by its length as int so readers can skip it: <p>
+ * int game number, long timestamp (epoch ms), long seed, byte winner (ordinal of {@link GameStatus}),
+ * byte moves of player one, byte moves of player two, int average ms of player one, int average ms of player two,
+ * four strings (player names and parameters, each as unsigned short length and UTF-8 bytes),
+ * byte move count and one byte (0-80) per move.
+ * @param seed The seed the players were created and the game was played with, see {@link Tournament}, 0 if unknown.
+ * @param moves The moves of the game, empty if unknown (e.g. converted from CSV).
+ */
+public record GameRecord(int gameNumber, long timestamp, long seed, GameStatus winner,
+                         int player1Moves, int player2Moves, int player1AvgMs, int player2AvgMs,
+                         String player1Name, String player2Name, String player1Param, String player2Param,
+                         byte[] moves) {
+	
+	/**
+	 * Creates a record from the result of a game.
+	 */
+	public static GameRecord of(int gameNumber, Stats stats, byte[] moves, long seed) {
+		return new GameRecord(gameNumber, System.currentTimeMillis(), seed, stats.winner(),
+				stats.player1_moves(), stats.player2_moves(),
+				(int) Math.min(stats.player1_avg_ms(), Integer.MAX_VALUE), (int) Math.min(stats.player2_avg_ms(), Integer.MAX_VALUE),
+				stats.player1_name(), stats.player2_name(), stats.player1_param(), stats.player2_param(), moves);
+	}
+	
+	public Stats toStats() {
+		return new Stats(player1Name, player2Name, winner, player1Moves, player2Moves, player1Param, player2Param, player1AvgMs, player2AvgMs);
+	}
+	
+	/**
+	 * Replays the moves on a new board.
+	 * @return The final position of the game.
+	 */
+	public UltimateBoard replay() {
+		UltimateBoard ultimateBoard = new UltimateBoard();
+		for (byte move : moves) {
+			ultimateBoard.makeMove(move);
+		}
+		return ultimateBoard;
+	}
+}
@@ -0,0 +1,160 @@
+package com.jcvb;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Converts between game record files and the CSV files of {@link GameLogger}. <p>
+ * The CSV files contain no moves, so records created from them have an empty move list and seed 0.
+ * The oldest files have no move counts either, these are read as -1.
+ * A game between two players of the same name is read as won by player one.
+ */
+public class GameRecordCsv {
+	
+	private GameRecordCsv() {
+	}
+	
+	/**
+	 * Writes all records of a game record file as CSV.
+	 * @return The number of converted games.
+	 */
+	public static int toCsv(Path records, Path csv) throws IOException {
+		int count = 0;
+		try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+			writer.write(GameLogger.HEADER);
+			for (GameRecord record : new GameRecordReader(records)) {
+				LocalDateTime timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestamp()), ZoneId.systemDefault());
+				writer.write(GameLogger.formatLine(record.gameNumber(), record.toStats(), timestamp));
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Writes all games of a CSV file as game records.
+	 * @return The number of converted games.
+	 */
+	public static int fromCsv(Path csv, Path records) throws IOException {
+		int count = 0;
+		try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+			 GameRecordWriter writer = new GameRecordWriter(records)) {
+			String line = reader.readLine();  // Header
+			
+			while ((line = reader.readLine()) != null) {
+				if (line.isBlank()) {
+					continue;
+				}
+				writer.write(parseLine(line));
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Parses a line of the CSV schema: <p>
+	 * Game Number, Player 1 Name, Player 2 Name, Player 1 Moves, Player 2 Moves, Player 1 Parameter,
+	 * Player 2 Parameter, Player 1 Avg Time, Player 2 Avg Time, Winner, Timestamp <p>
+	 * or of the older schema without the move counts, recognized by the columns and not by the header,
+	 * which in some files doesn't match the lines. <p>
+	 * Quoted fields are unquoted. Older files wrote the parameters without quotes although they may
+	 * contain commas (e.g. decimal commas), so the columns are taken from both ends and whatever is
+	 * left in the middle is split evenly between the parameters.
+	 */
+	static GameRecord parseLine(String line) {
+		String[] columns = split(line);
+		if (columns.length < 9) {
+			throw new IllegalArgumentException("Expected 9 or 11 columns: " + line);
+		}
+		
+		// The move counts are the only numbers between the names and the parameters
+		boolean withMoves = columns.length >= 11 && isNumber(columns[3]) && isNumber(columns[4]);
+		int firstParameter = withMoves ? 5 : 3;
+		
+		int last = columns.length;
+		int parameterColumns = last - firstParameter - 4;
+		String player1Name = columns[1];
+		String player2Name = columns[2];
+		String player1Param = String.join(",", Arrays.copyOfRange(columns, firstParameter, firstParameter + parameterColumns / 2));
+		String player2Param = String.join(",", Arrays.copyOfRange(columns, firstParameter + parameterColumns / 2, firstParameter + parameterColumns));
+		String winnerName = columns[last - 2];
+		
+		GameStatus winner = winnerName.equals(player1Name) ? GameStatus.ONE
+				: winnerName.equals(player2Name) ? GameStatus.TWO
+				: GameStatus.DRAW;
+		long timestamp = LocalDateTime.parse(columns[last - 1], GameLogger.TIMESTAMP_FORMAT).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+		
+		return new GameRecord(Integer.parseInt(columns[0]), timestamp, 0, winner,
+				withMoves ? Integer.parseInt(columns[3].trim()) : -1, withMoves ? Integer.parseInt(columns[4].trim()) : -1,
+				Integer.parseInt(columns[last - 4].trim()), Integer.parseInt(columns[last - 3].trim()),
+				player1Name, player2Name, player1Param, player2Param, new byte[0]);
+	}
+	
+	private static boolean isNumber(String column) {
+		String trimmed = column.trim();
+		if (trimmed.isEmpty()) {
+			return false;
+		}
+		for (int i = 0; i < trimmed.length(); i++) {
+			if (!Character.isDigit(trimmed.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static String[] split(String line) {
+		List<String> columns = new ArrayList<>();
+		StringBuilder column = new StringBuilder();
+		boolean quoted = false;
+		
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					column.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					column.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				columns.add(column.toString());
+				column.setLength(0);
+			} else {
+				column.append(c);
+			}
+		}
+		columns.add(column.toString());
+		return columns.toArray(new String[0]);
+	}
+	
+	/**
+	 * Usage: GameRecordCsv toCsv &lt;records&gt; &lt;csv&gt; or GameRecordCsv fromCsv &lt;csv&gt; &lt;records&gt;
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3 || !(args[0].equals("toCsv") || args[0].equals("fromCsv"))) {
+			System.err.println("Usage: GameRecordCsv toCsv <records> <csv> | fromCsv <csv> <records>");
+			return;
+		}
+		
+		int count = args[0].equals("toCsv")
+				? toCsv(Path.of(args[1]), Path.of(args[2]))
+				: fromCsv(Path.of(args[1]), Path.of(args[2]));
+		System.out.println("Converted " + count + " games");
+	}
+}
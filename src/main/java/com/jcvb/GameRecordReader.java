@@ -0,0 +1,111 @@
+package com.jcvb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the files of {@link GameRecordWriter} through a memory mapping, so scanning even large files
+ * needs neither copies nor buffers. The file is mapped as a whole, which limits it to 2 GB. <p>
+ * Every iteration starts at the first record, records are decoded lazily while iterating.
+ */
+public class GameRecordReader implements Iterable<GameRecord> {
+	
+	private static final GameStatus[] STATUSES = GameStatus.values();
+	
+	private final MappedByteBuffer buffer;
+	private final int start;
+	
+	/**
+	 * Maps the file and checks its header.
+	 * @throws IOException If the file can't be read or is no game record file.
+	 */
+	public GameRecordReader(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Game record file larger than 2 GB: " + file);
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		
+		if (buffer.remaining() < 5 || buffer.getInt(0) != GameRecordWriter.MAGIC) {
+			throw new IOException("Not a game record file: " + file);
+		}
+		if (buffer.get(4) != GameRecordWriter.VERSION) {
+			throw new IOException("Unsupported game record version " + buffer.get(4) + ": " + file);
+		}
+		start = 5;
+	}
+	
+	/**
+	 * Counts the records by skipping over them, without decoding.
+	 * @return The number of records in the file.
+	 */
+	public int count() {
+		int count = 0;
+		int position = start;
+		while (position + 4 <= buffer.limit()) {
+			position += 4 + buffer.getInt(position);
+			count++;
+		}
+		return count;
+	}
+	
+	@Override
+	public Iterator<GameRecord> iterator() {
+		ByteBuffer view = buffer.duplicate().position(start);
+		
+		return new Iterator<>() {
+			@Override
+			public boolean hasNext() {
+				return view.remaining() >= 4;
+			}
+			
+			@Override
+			public GameRecord next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return decode(view);
+			}
+		};
+	}
+	
+	private static GameRecord decode(ByteBuffer view) {
+		int end = view.getInt();
+		end += view.position();
+		
+		int gameNumber = view.getInt();
+		long timestamp = view.getLong();
+		long seed = view.getLong();
+		GameStatus winner = STATUSES[view.get()];
+		int player1Moves = view.get();
+		int player2Moves = view.get();
+		int player1AvgMs = view.getInt();
+		int player2AvgMs = view.getInt();
+		String player1Name = decodeString(view);
+		String player2Name = decodeString(view);
+		String player1Param = decodeString(view);
+		String player2Param = decodeString(view);
+		byte[] moves = new byte[view.get()];
+		view.get(moves);
+		
+		// Skip anything a newer writer may have appended to the record
+		view.position(end);
+		
+		return new GameRecord(gameNumber, timestamp, seed, winner, player1Moves, player2Moves, player1AvgMs, player2AvgMs,
+				player1Name, player2Name, player1Param, player2Param, moves);
+	}
+	
+	private static String decodeString(ByteBuffer view) {
+		byte[] bytes = new byte[view.getShort() & 0xFFFF];
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,88 @@
+package com.jcvb;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Appends {@link GameRecord}s to a binary file one after another, without holding them in memory. <p>
+ * File layout: the magic bytes "UTTR", a version byte and then the records.
+ * @see GameRecord
+ * @see GameRecordReader
+ */
+public class GameRecordWriter implements AutoCloseable {
+	
+	static final int MAGIC = 0x55545452;  // "UTTR"
+	static final int VERSION = 1;
+	
+	/**
+	 * Size of the fixed part of a record, without strings and moves.
+	 */
+	static final int FIXED_SIZE = 4 + 8 + 8 + 1 + 1 + 1 + 4 + 4 + 1;
+	
+	private final DataOutputStream out;
+	
+	/**
+	 * Creates the file and writes its header.
+	 * @param file The file to write, an existing file is overwritten.
+	 * @throws IOException If the file can't be created.
+	 */
+	public GameRecordWriter(Path file) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+	}
+	
+	/**
+	 * Writes a record. Safe to call from multiple threads.
+	 * @throws IOException If writing fails.
+	 */
+	public synchronized void write(GameRecord record) throws IOException {
+		byte[][] strings = {
+				encode(record.player1Name()), encode(record.player2Name()),
+				encode(record.player1Param()), encode(record.player2Param())
+		};
+		
+		int length = FIXED_SIZE + record.moves().length;
+		for (byte[] string : strings) {
+			length += 2 + string.length;
+		}
+		
+		out.writeInt(length);
+		out.writeInt(record.gameNumber());
+		out.writeLong(record.timestamp());
+		out.writeLong(record.seed());
+		out.writeByte(record.winner().ordinal());
+		out.writeByte(record.player1Moves());
+		out.writeByte(record.player2Moves());
+		out.writeInt(record.player1AvgMs());
+		out.writeInt(record.player2AvgMs());
+		for (byte[] string : strings) {
+			out.writeShort(string.length);
+			out.write(string);
+		}
+		out.writeByte(record.moves().length);
+		out.write(record.moves());
+	}
+	
+	/**
+	 * Encodes a string as UTF-8, cut off at the maximal length of 65535 bytes.
+	 */
+	private static byte[] encode(String string) {
+		byte[] bytes = (string == null ? "" : string).getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > 0xFFFF) {
+			byte[] cut = new byte[0xFFFF];
+			System.arraycopy(bytes, 0, cut, 0, cut.length);
+			return cut;
+		}
+		return bytes;
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+}
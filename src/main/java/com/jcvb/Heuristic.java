@@ -2,5 +2,21 @@ package com.jcvb;
 
 public interface Heuristic {
 	
+	/**
+	 * The value of a won game, the value of a lost game is -WIN. <p>
+	 * Running games have to be valued well within these bounds (below WIN - 100 in magnitude), so search
+	 * windows around any value can be computed without overflow and wins are told apart from good positions.
+	 */
+	int WIN = 1_000_000;
+	
+	/**
+	 * @param player The player whose view is evaluated, positive values are good for him.
+	 */
 	public int evaluate(UltimateBoard ultimateBoard, GameStatus player);
+	
+	/**
+	 * Called before every search, e.g. to draw new random values.
+	 */
+	default void newSearch() {
+	}
 }
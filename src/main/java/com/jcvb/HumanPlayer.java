@@ -44,7 +44,7 @@ public class HumanPlayer implements Player {
 	}
 
 	public static void main(String[] args) {
-		GameStatus result = new Game(new HumanPlayer(), new MiniMax(new CustomHeuristic(GameStatus.TWO), 7)).run();
+		GameStatus result = new Game(new HumanPlayer(), new MiniMax(new CustomHeuristic(), 7)).run();
 		System.out.println(result);
 	}
 	@Override
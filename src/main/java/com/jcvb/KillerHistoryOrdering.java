@@ -0,0 +1,120 @@
+package com.jcvb;
+
+/**
+ * The default {@link MoveOrdering} of {@link MiniMax}. Moves are sorted by a score built from, in this order: <p>
+ * 1. The hash move, usually the principal variation of the previous iteration. <p>
+ * 2. Moves which win their sub-board. <p>
+ * 3. The two killer moves of the ply, the latest quiet moves which caused a cutoff there. <p>
+ * 4. The history table, cutoffs per player and move weighted with the squared remaining depth. <p>
+ * Moves which send the opponent to a decided board give him the free choice of all running boards,
+ * which is rarely good, so they are sorted behind all other moves of the same score. <p>
+ * Scoring a move only needs a few table lookups, so the ordering is applied at every interior node.
+ */
+public class KillerHistoryOrdering implements MoveOrdering {
+	
+	private static final int HASH_MOVE = 1 << 30;
+	private static final int WINS_BOARD = 1 << 29;
+	private static final int KILLER_FIRST = 1 << 28;
+	private static final int KILLER_SECOND = 1 << 27;
+	
+	/**
+	 * History scores are halved once one of them reaches this value, so they stay below the killers
+	 * and newer cutoffs weigh more than old ones.
+	 */
+	private static final int HISTORY_LIMIT = 1 << 20;
+	
+	/**
+	 * Two killer moves per ply of the game, -1 if empty.
+	 */
+	private final int[][] killers = new int[82][2];
+	
+	/**
+	 * Cutoffs per player and move.
+	 */
+	private final int[][] history = new int[2][81];
+	
+	private final int[] scores = new int[81];
+	
+	public KillerHistoryOrdering() {
+		for (int[] killer : killers) {
+			killer[0] = -1;
+			killer[1] = -1;
+		}
+	}
+	
+	@Override
+	public void order(UltimateBoard ultimateBoard, int[] moves, int count, int hashMove) {
+		int player = ultimateBoard.getCurrentPlayer().playerNumber();
+		int[] killer = killers[ultimateBoard.getPly()];
+		int[] playerHistory = history[player];
+		int decided = ultimateBoard.getDecidedBoards();
+		
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			int board = move / 9;
+			int cell = 1 << (move % 9);
+			int own = ultimateBoard.getCells(player, board) | cell;
+			int other = ultimateBoard.getCells(player ^ 1, board);
+			
+			int score;
+			if (move == hashMove) {
+				score = HASH_MOVE;
+			} else if (Bitboard.WINS[own]) {
+				score = WINS_BOARD;
+			} else if (move == killer[0]) {
+				score = KILLER_FIRST;
+			} else if (move == killer[1]) {
+				score = KILLER_SECOND;
+			} else {
+				score = playerHistory[move];
+			}
+			
+			// A move which decides its own board and stays there sends the opponent to a decided board as well
+			int decidedAfter = (Bitboard.WINS[own] || (own | other) == UltimateBoard.BOARD_MASK) ? decided | (1 << board) : decided;
+			if ((decidedAfter & (1 << (move % 9))) != 0) {
+				score--;
+			}
+			scores[i] = score;
+		}
+		
+		// Insertion sort, the moves are few and often nearly sorted already
+		for (int i = 1; i < count; i++) {
+			int move = moves[i];
+			int score = scores[i];
+			int j = i - 1;
+			while (j >= 0 && scores[j] < score) {
+				moves[j + 1] = moves[j];
+				scores[j + 1] = scores[j];
+				j--;
+			}
+			moves[j + 1] = move;
+			scores[j + 1] = score;
+		}
+	}
+	
+	@Override
+	public void cutoff(UltimateBoard ultimateBoard, int move, int depth) {
+		int player = ultimateBoard.getCurrentPlayer().playerNumber();
+		
+		// Winning a board is sorted first anyway
+		if (Bitboard.WINS[ultimateBoard.getCells(player, move / 9) | (1 << (move % 9))]) {
+			return;
+		}
+		
+		int[] killer = killers[ultimateBoard.getPly()];
+		if (killer[0] != move) {
+			killer[1] = killer[0];
+			killer[0] = move;
+		}
+		
+		int[] playerHistory = history[player];
+		playerHistory[move] += depth * depth;
+		if (playerHistory[move] >= HISTORY_LIMIT) {
+			for (int[] table : history) {
+				for (int i = 0; i < table.length; i++) {
+					table[i] >>= 1;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package com.jcvb;
+
+/**
+ * Counts latencies in logarithmic buckets with a fixed relative precision, so percentiles can be read off
+ * without keeping every value. <p>
+ * Values below 64 get a bucket each, above that every power of two is split into 32 buckets,
+ * which keeps the error of a percentile below 1/32 (about 3%) at any magnitude. <p>
+ * Not thread-safe, record from a single thread or merge per-thread histograms with {@link #add(LatencyHistogram)}.
+ */
+public class LatencyHistogram {
+	
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	
+	/**
+	 * Enough buckets for any non-negative long.
+	 */
+	private static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+	
+	private final long[] counts = new long[BUCKETS];
+	private long count;
+	private long sum;
+	private long max;
+	
+	/**
+	 * Adds a value, negative values are counted as 0.
+	 */
+	public void record(long value) {
+		value = Math.max(value, 0);
+		counts[index(value)]++;
+		count++;
+		sum += value;
+		max = Math.max(max, value);
+	}
+	
+	/**
+	 * Adds all values of another histogram.
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		sum += other.sum;
+		max = Math.max(max, other.max);
+	}
+	
+	public long getCount() {
+		return count;
+	}
+	
+	public long getMax() {
+		return max;
+	}
+	
+	public double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+	
+	/**
+	 * @param percentile Between 0 and 100, e.g. 50 for the median or 99.
+	 * @return The highest value of the bucket containing the percentile, 0 if nothing was recorded.
+	 */
+	public long getPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		
+		long rank = Math.max((long) Math.ceil(percentile / 100 * count), 1);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(highestValue(i), max);
+			}
+		}
+		return max;
+	}
+	
+	/**
+	 * The bucket of a value: below 2 * SUB_BUCKETS the value itself, above that the exponent
+	 * and the SUB_BUCKET_BITS + 1 highest bits of the value.
+	 */
+	private static int index(long value) {
+		if (value < 2 * SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return shift * SUB_BUCKETS + (int) (value >>> shift);
+	}
+	
+	private static long highestValue(int index) {
+		if (index < 2 * SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long mantissa = index - (long) shift * SUB_BUCKETS;
+		return ((mantissa + 1) << shift) - 1;
+	}
+}
@@ -1,50 +1,61 @@
 package com.jcvb;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 public class Main {
 	public static void main(String[] args) {
 		
 		int NUM_GAMES = 1000;
-		// MiniMax, RandomPlayer, Draw
-		int[] wins = new int[3];
-		int DEPTH = 12;
-
-
-
-		Player monteCarloTreeSearch1 = new MonteCarloTreeSearch(GameStatus.ONE);
-		Player monteCarloTreeSearch2 = new MonteCarloTreeSearch(GameStatus.TWO);
-
-		Player randomPlayer = new RandomPlayer();
-		GameLogger.createNewLogFile();
-		for (int i = 0; i < NUM_GAMES; i++) {
-			GameStatus result;
-			Game game;
-			if (i % 2 == 0) {
-//				result = new Game(randomPlayer, miniMax2).run();
-				Player miniMax1 = new MiniMax(new CustomHeuristic(GameStatus.ONE), i%10);
-				game = new Game(miniMax1, randomPlayer);
-				result = game.run();
-				if(result.ordinal() == 0){
-					wins[1]++;
-				} else if(result.ordinal() == 1){
-					wins[0]++;
-				}
-//				printVictoryMessage(result, i, "Random", "miniMax");
-				printVictoryMessage(result, i, "MiniMax", "MCTS");
-			} else {
-//				result = new Game(minimax1, randomPlayer).run();
-				Player miniMax2 = new MiniMax(new CustomHeuristic(GameStatus.TWO), i%10);
-				game = new Game(randomPlayer, miniMax2);
-				result = game.run();
-				wins[result.ordinal()]++;
-
-//				printVictoryMessage(result, i, "miniMax", "Random");
-				printVictoryMessage(result, i, "MCTS", "MiniMax");
-			}
-//			printStats(wins, randomPlayer, randomPlayer);
-			GameLogger.logGameResult(i, game.getStats());
+		int MAX_DEPTH = 10;
+		int THREADS = Runtime.getRuntime().availableProcessors();
+		
+		// The tournament already plays one game per core, so every player searches on a single thread
+		// with a small table instead of the default Lazy SMP over all cores
+		int SEARCH_THREADS = 1;
+		int TABLE_SIZE = 1 << 16;
+		
+		Tournament tournament = new Tournament(THREADS / SEARCH_THREADS, true);
+		Tournament.Entrant randomPlayer = new Tournament.Entrant("RandomPlayer", player -> new RandomPlayer());
+		
+		// A book built by OpeningBookBuilder lets the MiniMax players skip the opening searches. Off by default,
+		// as the book plays the same opening moves at every depth and hides the differences between them.
+		Path OPENING_BOOK = null;
+		OpeningBook book;
+		try {
+			book = OPENING_BOOK == null ? null : new OpeningBook(OPENING_BOOK);
+		} catch (IOException e) {
+			System.err.println("Error reading opening book: " + e.getMessage());
+			return;
 		}
 		
-
+		// Every depth plays the same number of games against the random player, half of them as first player
+		for (int depth = 0; depth < MAX_DEPTH; depth++) {
+			int miniMaxDepth = depth;
+			Tournament.Entrant miniMax = new Tournament.Entrant("MiniMax " + depth + (book != null ? " + Book" : ""), player -> BookPlayer.withBook(new MiniMax(new CustomHeuristic(), miniMaxDepth, 0, SEARCH_THREADS, new TranspositionTable(TABLE_SIZE)), book));
+			tournament.addPairing(miniMax, randomPlayer, NUM_GAMES / MAX_DEPTH, true);
+		}
+		
+		// The records keep the moves of every game next to the CSV log
+		try (GameLogger logger = GameLogger.createNewLogFile();
+			 GameRecordWriter records = new GameRecordWriter(Path.of("game_records_" + System.currentTimeMillis() + ".bin"))) {
+			tournament.setListener(result -> {
+				printVictoryMessage(result.stats().winner(), result.gameNumber(), result.one().name(), result.two().name());
+				if (logger != null) {
+					logger.logGameResult(result.gameNumber(), result.stats());
+					logger.logMoves(result.gameNumber(), result.stats(), result.telemetry());
+				}
+				try {
+					records.write(GameRecord.of(result.gameNumber(), result.stats(), result.moves(), result.seed()));
+				} catch (IOException e) {
+					System.err.println("Error writing game record: " + e.getMessage());
+				}
+			});
+			
+			System.out.println(tournament.run());
+		} catch (IOException e) {
+			System.err.println("Error creating game record file: " + e.getMessage());
+		}
 	}
 	
 	public static void printVictoryMessage(GameStatus status, int gameNum, String oneName, String twoName) {
@@ -1,118 +1,638 @@
 package com.jcvb;
 
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 public class MiniMax implements Player {
-
+	
 	private final int MAX_DEPTH;
 	private final Heuristic heuristic;
 	private final String name;
 	
+	/**
+	 * Wall-clock budget per move, 0 for a fixed depth search.
+	 */
+	private final long msPerMove;
+	
+	/**
+	 * Number of threads used by {@link #getBestMoveThreaded(UltimateBoard)}.
+	 */
+	private final int threads;
+	
+	/**
+	 * Helper threads for the parallel search, created on first use.
+	 * Idle threads time out, so an abandoned player doesn't keep them alive.
+	 */
+	private ThreadPoolExecutor executor;
+	
+	/**
+	 * Set once the main search thread has finished, the helper threads then unwind.
+	 */
+	private volatile boolean stopHelpers;
+	
+	/**
+	 * Nodes searched by all threads during the last move and the time it took.
+	 */
+	private long lastNodes;
+	private long lastNanos;
+	
+	/**
+	 * Transposition table probes and hits of all threads and the root score of the last move, for {@link #getSearchInfo()}.
+	 */
+	private long lastProbes;
+	private long lastHits;
+	private int lastScore;
+	
+	/**
+	 * Depth of the last completed iteration and the sum over all moves, for {@link #getParam()}.
+	 */
+	private int reachedDepth = -1;
+	private long reachedDepthSum;
+	private int searches;
+	
+	private boolean quiet;
+	
+	/**
+	 * Creates the move ordering of every search thread.
+	 */
+	private Supplier<MoveOrdering> moveOrdering = KillerHistoryOrdering::new;
+	
+	/**
+	 * Shared by all search threads, kept between moves.
+	 */
+	private final TranspositionTable transpositionTable;
+	
+	/**
+	 * Bounds of all search windows, no score can reach them.
+	 */
+	private static final int INFINITY = Heuristic.WIN + 1;
+	
+	/**
+	 * Scores within this distance of WIN are wins in as many plies.
+	 */
+	private static final int MAX_PLY = 81;
+	
+	/**
+	 * Plies from the root at which only one move per symmetry class is searched. Symmetric positions
+	 * only occur early in the game, deeper plies would merely pay for the test.
+	 */
+	private static final int SYMMETRY_PLIES = 3;
+	
+	/**
+	 * Initial half width of the aspiration window, a third of what CustomHeuristic gives for a won sub-board.
+	 */
+	private static final int ASPIRATION_WINDOW = 100;
+	
+	/**
+	 * Default number of transposition table slots (16 MB).
+	 */
+	public static final int DEFAULT_TABLE_SIZE = 1 << 20;
+	
+	/**
+	 * Creates a player which searches every move to a fixed depth.
+	 */
 	public MiniMax(Heuristic heuristic, int depth) {
+		this(heuristic, depth, 0, new TranspositionTable(DEFAULT_TABLE_SIZE));
+	}
+	
+	public MiniMax(Heuristic heuristic, int depth, TranspositionTable transpositionTable) {
+		this(heuristic, depth, 0, transpositionTable);
+	}
+	
+	/**
+	 * Creates a player which deepens iteratively until the time per move is used up.
+	 * @param maxDepth The depth at which the search stops even if time is left.
+	 * @param msPerMove The wall-clock budget per move, 0 to always search to maxDepth.
+	 */
+	public MiniMax(Heuristic heuristic, int maxDepth, long msPerMove) {
+		this(heuristic, maxDepth, msPerMove, new TranspositionTable(DEFAULT_TABLE_SIZE));
+	}
+	
+	public MiniMax(Heuristic heuristic, int maxDepth, long msPerMove, TranspositionTable transpositionTable) {
+		this(heuristic, maxDepth, msPerMove, Runtime.getRuntime().availableProcessors(), transpositionTable);
+	}
+	
+	/**
+	 * @param threads The number of threads searching in parallel, 1 for a sequential search.
+	 */
+	public MiniMax(Heuristic heuristic, int maxDepth, long msPerMove, int threads) {
+		this(heuristic, maxDepth, msPerMove, threads, new TranspositionTable(DEFAULT_TABLE_SIZE));
+	}
+	
+	public MiniMax(Heuristic heuristic, int maxDepth, long msPerMove, int threads, TranspositionTable transpositionTable) {
 		this.heuristic = heuristic;
-		this.MAX_DEPTH = depth;
+		this.MAX_DEPTH = maxDepth;
+		this.msPerMove = msPerMove;
+		this.threads = Math.max(threads, 1);
+		this.transpositionTable = transpositionTable;
 		this.name = "MiniMax w/ " + heuristic.getClass().getSimpleName();
 	}
 	
+	/**
+	 * Per-thread state of a search.
+	 */
+	private static class SearchContext {
+		/**
+		 * One move buffer per remaining depth, so no lists are allocated during the search.
+		 */
+		final int[][] moveBuffers;
+		/**
+		 * System.nanoTime() at which the search is aborted.
+		 */
+		long deadline;
+		long nodes;
+		long probes;
+		long hits;
+		/**
+		 * Value of the best move of the last searched root iteration.
+		 */
+		int rootScore;
+		/**
+		 * The player the heuristic evaluates for and the ply of the root position.
+		 */
+		GameStatus rootPlayer;
+		int rootPly;
+		/**
+		 * Set once the deadline has passed, everything searched afterwards is discarded.
+		 */
+		boolean stopped;
+		/**
+		 * Helper contexts are also stopped once the main search thread is done.
+		 */
+		final boolean helper;
+		final MoveOrdering moveOrdering;
+		
+		SearchContext(int maxDepth, long deadline, MoveOrdering moveOrdering) {
+			this(maxDepth, deadline, false, moveOrdering);
+		}
+		
+		SearchContext(int maxDepth, long deadline, boolean helper, MoveOrdering moveOrdering) {
+			this.moveBuffers = new int[maxDepth + 1][81];
+			this.deadline = deadline;
+			this.helper = helper;
+			this.moveOrdering = moveOrdering;
+		}
+		
+		void setRoot(UltimateBoard ultimateBoard, GameStatus player) {
+			this.rootPlayer = player;
+			this.rootPly = ultimateBoard.getPly();
+		}
+	}
+	
+	/**
+	 * Searches the given board with alpha-beta pruning. <p>
+	 * Moves are made and unmade in place, the board is in its original state afterwards.
+	 * @param isMaximizing True if the player the heuristic is evaluated for is to move, false if it is his opponent.
+	 * @return The value from the view of the player the heuristic is evaluated for.
+	 */
 	public int minimax(UltimateBoard ultimateBoard, int depth, boolean isMaximizing, int alpha, int beta){
-		List<Integer> moves = ultimateBoard.getPossibleMoves();
+		SearchContext context = new SearchContext(depth, Long.MAX_VALUE, moveOrdering.get());
+		context.setRoot(ultimateBoard, isMaximizing ? ultimateBoard.getCurrentPlayer() : ultimateBoard.getCurrentPlayer().next());
+		alpha = Math.max(alpha, -INFINITY);
+		beta = Math.min(beta, INFINITY);
+		
+		if (isMaximizing) {
+			return negamax(ultimateBoard, depth, alpha, beta, context);
+		}
+		return -negamax(ultimateBoard, depth, -beta, -alpha, context);
+	}
+	
+	/**
+	 * Principal variation search in negamax form: the value is always from the view of the player to move. <p>
+	 * The first move, which the move ordering expects to be the best, is searched with the full window,
+	 * all others only with a null window around alpha, which is cheaper and merely proves that they are
+	 * not better. Only if that fails, the move is searched again with the full window. <p>
+	 * Fail-soft: the returned value may lie outside the window, it is then a bound of the true value.
+	 */
+	private int negamax(UltimateBoard ultimateBoard, int depth, int alpha, int beta, SearchContext context){
+		// Checking the clock is comparatively expensive, so it is only done every 1024 nodes
+		if ((++context.nodes & 1023) == 0 && (System.nanoTime() > context.deadline || (context.helper && stopHelpers))) {
+			context.stopped = true;
+		}
+		if (context.stopped) {
+			return 0;
+		}
+		
+		// A finished game is scored right away, so a win found within the horizon keeps its distance
+		if (depth == 0 || ultimateBoard.isGameOver()) {
+			return evaluate(ultimateBoard, context);
+		}
+		
+		int[] moves = context.moveBuffers[depth];
+		int ply = ultimateBoard.getPly() - context.rootPly;
+		int count = ply < SYMMETRY_PLIES ? ultimateBoard.getDistinctMoves(moves) : ultimateBoard.getPossibleMoves(moves);
 		
-		if(moves.isEmpty() || depth == 0){
-			return heuristic.evaluate(ultimateBoard, ultimateBoard.getCurrentPlayer());
+		if (count == 0) {
+			return evaluate(ultimateBoard, context);
 		}
 		
-		if(isMaximizing) {
-			for (int move : moves) {
-				UltimateBoard copy = ultimateBoard.deepClone();
-				copy.makeMove(move);
-				alpha = Math.max(alpha, minimax(copy, depth - 1, false, alpha, beta));
+		// Symmetric positions share their entry, the moves in it are stored transformed to the representative
+		int symmetry = ultimateBoard.getCanonicalSymmetry();
+		long hash = ultimateBoard.getSymmetricHash(symmetry);
+		long entry = transpositionTable.probe(hash);
+		context.probes++;
+		int hashMove = -1;
+		
+		if (entry != 0) {
+			context.hits++;
+			if (TranspositionTable.depth(entry) >= depth) {
+				int score = fromTable(TranspositionTable.score(entry), ply);
+				int bound = TranspositionTable.bound(entry);
 				
-				if (alpha >= beta)
-					return alpha;
+				if (bound == TranspositionTable.EXACT
+						|| (bound == TranspositionTable.LOWER && score >= beta)
+						|| (bound == TranspositionTable.UPPER && score <= alpha)) {
+					return score;
+				}
+			}
+			
+			// Try the best move of an earlier search first
+			hashMove = TranspositionTable.move(entry);
+			if (hashMove != -1) {
+				hashMove = UltimateBoard.transformMove(UltimateBoard.inverseSymmetry(symmetry), hashMove);
 			}
-			return alpha;
+		}
+		context.moveOrdering.order(ultimateBoard, moves, count, hashMove);
+		
+		int alphaOriginal = alpha;
+		int bestValue = -INFINITY;
+		int bestMove = -1;
+		
+		for (int i = 0; i < count; i++) {
+			ultimateBoard.makeMove(moves[i]);
+			int value;
+			if (i == 0) {
+				value = -negamax(ultimateBoard, depth - 1, -beta, -alpha, context);
+			} else {
+				value = -negamax(ultimateBoard, depth - 1, -alpha - 1, -alpha, context);
+				if (value > alpha && value < beta) {
+					value = -negamax(ultimateBoard, depth - 1, -beta, -alpha, context);
+				}
+			}
+			ultimateBoard.unmakeMove();
+			
+			if (value > bestValue) {
+				bestValue = value;
+				bestMove = moves[i];
+			}
+			if (value > alpha) {
+				alpha = value;
+			}
+			if (alpha >= beta) {
+				context.moveOrdering.cutoff(ultimateBoard, moves[i], depth);
+				break;
+			}
+		}
+		store(hash, depth, ply, bestValue, alphaOriginal, beta, UltimateBoard.transformMove(symmetry, bestMove), context);
+		return bestValue;
+	}
+	
+	/**
+	 * Evaluates a leaf from the view of the player to move. <p>
+	 * The heuristic always evaluates for the player to move at the root, so its values stay comparable
+	 * between plies. Won and lost games are scored by their distance from the root, so the search
+	 * prefers quick wins and slow losses.
+	 */
+	private int evaluate(UltimateBoard ultimateBoard, SearchContext context) {
+		int value = heuristic.evaluate(ultimateBoard, context.rootPlayer);
+		if (ultimateBoard.getCurrentPlayer() != context.rootPlayer) {
+			value = -value;
+		}
+		
+		int ply = ultimateBoard.getPly() - context.rootPly;
+		if (value >= Heuristic.WIN) {
+			return Heuristic.WIN - ply;
+		} else if (value <= -Heuristic.WIN) {
+			return -Heuristic.WIN + ply;
+		}
+		return value;
+	}
+	
+	/**
+	 * Win scores are stored as distance from the stored position instead of from the root,
+	 * so they stay valid when the position is reached at another ply or from another root.
+	 */
+	private static int toTable(int score, int ply) {
+		if (score > Heuristic.WIN - MAX_PLY) {
+			return score + ply;
+		} else if (score < -Heuristic.WIN + MAX_PLY) {
+			return score - ply;
+		}
+		return score;
+	}
+	
+	private static int fromTable(int score, int ply) {
+		if (score > Heuristic.WIN - MAX_PLY) {
+			return score - ply;
+		} else if (score < -Heuristic.WIN + MAX_PLY) {
+			return score + ply;
+		}
+		return score;
+	}
+	
+	/**
+	 * Stores a search result with the bound type implied by the original window.
+	 */
+	private void store(long hash, int depth, int ply, int value, int alpha, int beta, int bestMove, SearchContext context) {
+		// Results of an aborted search are incomplete
+		if (context.stopped) {
+			return;
+		}
+		
+		int bound;
+		if (value <= alpha) {
+			bound = TranspositionTable.UPPER;
+		} else if (value >= beta) {
+			bound = TranspositionTable.LOWER;
 		} else {
-			for(int move: moves) {
-				UltimateBoard copy = ultimateBoard.deepClone();
-				copy.makeMove(move);
-				beta = Math.min(beta, minimax(copy, depth - 1, true, alpha, beta));
-				
-				if (alpha >= beta)
-					return beta;
+			bound = TranspositionTable.EXACT;
+		}
+		transpositionTable.store(hash, depth, bound, toTable(value, ply), bestMove);
+	}
+	
+	/**
+	 * Moves the given move to the front of the buffer, if it is contained.
+	 */
+	private static void moveToFront(int[] moves, int count, int move) {
+		for (int i = 0; i < count; i++) {
+			if (moves[i] == move) {
+				moves[i] = moves[0];
+				moves[0] = move;
+				return;
 			}
-			return beta;
 		}
 	}
 	
 	public int getBestMove(UltimateBoard ultimateBoard){
-		List<Integer> moves =  ultimateBoard.getPossibleMoves();
-		int bestMove = 0;
-		int bestValue = Integer.MIN_VALUE;
-		for(int move: moves) {
-			UltimateBoard copy = ultimateBoard.deepClone();
-			copy.makeMove(move);
-			int moveValue = minimax(copy, MAX_DEPTH, true, Integer.MIN_VALUE, Integer.MAX_VALUE);
-			if(moveValue > bestValue){
-				bestMove = move;
-				bestValue = moveValue;
+		return search(ultimateBoard, 1);
+	}
+	
+	/**
+	 * Searches with all configured threads (Lazy SMP). <p>
+	 * The helper threads run their own iterative deepening on the same position and only share the
+	 * transposition table. Odd helpers start one ply deeper and every helper uses a different root
+	 * move order, so they fill the table with results the main thread can cut off with.
+	 * Only the result of the main thread is played.
+	 */
+	public int getBestMoveThreaded(UltimateBoard ultimateBoard) {
+		return search(ultimateBoard, threads);
+	}
+	
+	/**
+	 * Iterative deepening: searches depth 0, 1, 2... until MAX_DEPTH is reached or the time is up. <p>
+	 * Every iteration starts with the best move of the previous one, deeper in the tree the
+	 * transposition table supplies the previous principal variation. The result of an
+	 * interrupted iteration is discarded.
+	 */
+	private int search(UltimateBoard ultimateBoard, int threadCount) {
+		long start = System.nanoTime();
+		long deadline = msPerMove > 0 ? start + msPerMove * 1_000_000 : Long.MAX_VALUE;
+		UltimateBoard copy = ultimateBoard.deepClone();
+		int[] moves = new int[81];
+		int count = copy.getDistinctMoves(moves);
+		int bestMove = count > 0 ? moves[0] : 0;
+		
+		heuristic.newSearch();
+		
+		// The first iteration always completes, so there is a move to play
+		SearchContext context = new SearchContext(MAX_DEPTH, Long.MAX_VALUE, moveOrdering.get());
+		stopHelpers = false;
+		reachedDepth = -1;
+		
+		List<SearchContext> helperContexts = new ArrayList<>();
+		List<Future<?>> helpers = new ArrayList<>();
+		
+		for (int id = 1; id < threadCount && count > 1; id++) {
+			SearchContext helperContext = new SearchContext(MAX_DEPTH, deadline, true, moveOrdering.get());
+			UltimateBoard helperBoard = ultimateBoard.deepClone();
+			helperContext.setRoot(helperBoard, helperBoard.getCurrentPlayer());
+			int helperId = id;
+			helperContexts.add(helperContext);
+			helpers.add(getExecutor().submit(() -> helperSearch(helperBoard, helperId, helperContext)));
+		}
+		
+		context.setRoot(copy, copy.getCurrentPlayer());
+		
+		for (int depth = 0; depth <= MAX_DEPTH; depth++) {
+			moveToFront(moves, count, bestMove);
+			
+			int move = searchAspiration(copy, moves, count, depth, context);
+			
+			if (context.stopped) {
+				break;
 			}
 			
+			bestMove = move;
+			reachedDepth = depth;
+			lastScore = context.rootScore;
+			context.deadline = deadline;
+			
+			// A single possible move doesn't need to be searched any deeper
+			if (count <= 1) {
+				break;
+			}
 		}
+		
+		stopHelpers = true;
+		long nodes = context.nodes;
+		long probes = context.probes;
+		long hits = context.hits;
+		
+		for (int i = 0; i < helpers.size(); i++) {
+			try {
+				helpers.get(i).get();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			nodes += helperContexts.get(i).nodes;
+			probes += helperContexts.get(i).probes;
+			hits += helperContexts.get(i).hits;
+		}
+		
+		lastNodes = nodes;
+		lastProbes = probes;
+		lastHits = hits;
+		lastNanos = System.nanoTime() - start;
+		reachedDepthSum += reachedDepth;
+		searches++;
+		
 		return bestMove;
 	}
 	
-	public int getBestMoveThreaded(UltimateBoard ultimateBoard) {
-		List<Integer> moves =  ultimateBoard.getPossibleMoves();
-
-		List<CompletableFuture<Integer>> futures = new ArrayList<>();
+	/**
+	 * Searches the root with a narrow window around the score of the previous iteration, which cuts off
+	 * far more than the full window. If the score falls outside, the window is widened on that side
+	 * and the root is searched again. The first iteration has no previous score and uses the full window.
+	 */
+	private int searchAspiration(UltimateBoard ultimateBoard, int[] moves, int count, int depth, SearchContext context) {
+		if (depth == 0) {
+			return searchRoot(ultimateBoard, moves, count, depth, -INFINITY, INFINITY, context);
+		}
 		
-		for (int move : moves) {
-			CompletableFuture<Integer> future = CompletableFuture.supplyAsync(() -> {
-				UltimateBoard copy = ultimateBoard.deepClone();
-				copy.makeMove(move);
-				return minimax(copy, MAX_DEPTH, true, Integer.MIN_VALUE, Integer.MAX_VALUE);
-			});
-			futures.add(future);
+		int delta = ASPIRATION_WINDOW;
+		int alpha = Math.max(context.rootScore - delta, -INFINITY);
+		int beta = Math.min(context.rootScore + delta, INFINITY);
+		
+		while (true) {
+			int move = searchRoot(ultimateBoard, moves, count, depth, alpha, beta, context);
+			int score = context.rootScore;
+			
+			if (context.stopped) {
+				return move;
+			}
+			delta *= 2;
+			if (score <= alpha && alpha > -INFINITY) {
+				alpha = Math.max(score - delta, -INFINITY);
+			} else if (score >= beta && beta < INFINITY) {
+				beta = Math.min(score + delta, INFINITY);
+			} else {
+				return move;
+			}
+			// The best move of the failed search is tried first
+			moveToFront(moves, count, move);
+		}
+	}
+	
+	/**
+	 * Iterative deepening of a helper thread, the results only end up in the transposition table.
+	 */
+	private void helperSearch(UltimateBoard ultimateBoard, int id, SearchContext context) {
+		int[] moves = new int[81];
+		int count = ultimateBoard.getDistinctMoves(moves);
+		
+		// Rotate the root moves, so the helpers start in different subtrees
+		int[] rotated = new int[count];
+		for (int i = 0; i < count; i++) {
+			rotated[i] = moves[(i + id) % count];
 		}
 		
-		int bestMove = 0;
-		int bestValue = Integer.MIN_VALUE;
+		for (int depth = 1 + (id & 1); depth <= MAX_DEPTH && !context.stopped && !stopHelpers; depth++) {
+			searchRoot(ultimateBoard, rotated, count, depth, -INFINITY, INFINITY, context);
+		}
+	}
+	
+	private ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = new ThreadPoolExecutor(threads - 1, threads - 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+				Thread thread = new Thread(runnable, "MiniMax helper");
+				thread.setDaemon(true);
+				return thread;
+			});
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+	
+	/**
+	 * Searches all root moves, the opponent is to move after each of them. <p>
+	 * The value of the best move is left in {@link SearchContext#rootScore}, if it lies outside the
+	 * window it is only a bound and the best move may be wrong.
+	 * @return The best move, undefined if the search was stopped.
+	 */
+	private int searchRoot(UltimateBoard ultimateBoard, int[] moves, int count, int depth, int alpha, int beta, SearchContext context) {
+		int bestMove = moves[0];
+		int bestValue = -INFINITY;
 		
-		for (int i = 0; i < futures.size(); i++) {
-			int moveValue = (int) futures.get(i).join();
-			if (moveValue > bestValue) {
-				bestMove = moves.get(i);
+		for (int i = 0; i < count; i++) {
+			ultimateBoard.makeMove(moves[i]);
+			int moveValue;
+			if (i == 0) {
+				moveValue = -negamax(ultimateBoard, depth, -beta, -alpha, context);
+			} else {
+				moveValue = -negamax(ultimateBoard, depth, -alpha - 1, -alpha, context);
+				if (moveValue > alpha && moveValue < beta) {
+					moveValue = -negamax(ultimateBoard, depth, -beta, -alpha, context);
+				}
+			}
+			ultimateBoard.unmakeMove();
+			
+			if (context.stopped) {
+				break;
+			}
+			
+			if(moveValue > bestValue){
+				bestMove = moves[i];
 				bestValue = moveValue;
 			}
+			if (moveValue > alpha) {
+				alpha = moveValue;
+			}
+			if (alpha >= beta) {
+				break;
+			}
 		}
-		
+		context.rootScore = bestValue;
 		return bestMove;
 	}
 	
+	/**
+	 * Replaces the move ordering, e.g. with {@link MoveOrdering#hashMoveOnly()} for comparisons.
+	 * @param moveOrdering Called once per search thread and move.
+	 */
+	public void setMoveOrdering(Supplier<MoveOrdering> moveOrdering) {
+		this.moveOrdering = moveOrdering;
+	}
+	
+	/**
+	 * @return The number of nodes searched by all threads during the last move.
+	 */
+	public long getLastNodes() {
+		return lastNodes;
+	}
+	
+	/**
+	 * @return The nodes per second searched by all threads during the last move.
+	 */
+	public long getNodesPerSecond() {
+		return lastNanos == 0 ? 0 : lastNodes * 1_000_000_000L / lastNanos;
+	}
+	
+	@Override
+	public SearchInfo getSearchInfo() {
+		double hitRate = lastProbes == 0 ? Double.NaN : (double) lastHits / lastProbes;
+		return new SearchInfo(lastNodes, reachedDepth, hitRate, lastScore, -1);
+	}
+	
 	public void play(UltimateBoard ultimateBoard) {
 		int bestMove = getBestMoveThreaded(ultimateBoard);
 //		int bestMove = getBestMove(ultimateBoard);
+		if (!quiet) System.out.println("MiniMax searched " + lastNodes + " nodes (" + getNodesPerSecond() / 1000 + " kN/s) with " + threads + " threads");
 		ultimateBoard.makeMove(bestMove);
 	}
-
+	
+	@Override
+	public void setQuiet(boolean quiet) {
+		this.quiet = quiet;
+	}
+	
 	@Override
 	public String getName() {
 		return name;
 	}
-
+	
 	@Override
 	public String getSymbol() {
 		return "";
 	}
-
+	
 	public static void main(String[] args) {
-		GameStatus result = new Game(new MiniMax(new CustomHeuristic(GameStatus.ONE), 10), new HumanPlayer()).run();
+		GameStatus result = new Game(new MiniMax(new CustomHeuristic(), 10), new HumanPlayer()).run();
 		System.out.println(result);
 	}
-
+	
 	@Override
 	public String getParam(){
-		return "Depth: " + MAX_DEPTH;
+		if (msPerMove == 0) {
+			return "Depth: " + MAX_DEPTH;
+		}
+		
+		// Depth reached by the last move and on average
+		double average = searches == 0 ? 0 : (double) reachedDepthSum / searches;
+		return String.format(Locale.ROOT, "Ms/Move: %d Depth: %d (avg %.1f)", msPerMove, reachedDepth, average);
 	}
 }
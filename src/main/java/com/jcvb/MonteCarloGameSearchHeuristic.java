@@ -1,54 +1,242 @@
 package com.jcvb;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Estimates a position by random playouts: every move of the player to move is followed by random games,
+ * the position is worth as much as its best move. <p>
+ * The playouts are run in rounds of {@link #BATCH_SIZE} per move. After every round a move is dropped once the
+ * confidence interval of its win rate lies completely below the one of the best move, and the evaluation
+ * stops as soon as a single move is left. Only a close position uses the full number of playouts. <p>
+ * Draws count as half a win. The value is the win rate of the best move scaled to -{@link #SCALE} (always lost)
+ * to {@link #SCALE} (always won), so it can be used as leaf evaluation of {@link MiniMax}.
+ */
 public class MonteCarloGameSearchHeuristic implements Heuristic{
 	
+	/**
+	 * The value of a position whose best move always wins.
+	 */
+	public static final int SCALE = 1000;
+	
+	/**
+	 * Playouts per move and round.
+	 */
+	static final int BATCH_SIZE = 16;
+	
+	/**
+	 * Quantile of the normal distribution for 99% confidence intervals.
+	 */
+	private static final double Z = 2.576;
+	
 	private final int amountOfSimulations;
+	private final int threads;
+	
+	/**
+	 * Threads for the parallel rounds, created on first use.
+	 */
+	private ThreadPoolExecutor executor;
+	
+	/**
+	 * Buffers of the calling thread, MiniMax evaluates on several threads at once.
+	 */
+	private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+	
+	private final LongAdder playouts = new LongAdder();
 	
+	/**
+	 * Buffers for a single evaluation, so a sequential evaluation allocates nothing.
+	 */
+	private static class Scratch {
+		final int[] moves = new int[81];
+		/**
+		 * Rewards in half points and playouts per move, indexed like moves.
+		 */
+		final int[] rewards = new int[81];
+		final int[] playouts = new int[81];
+		/**
+		 * The indices of the moves which are still sampled.
+		 */
+		final int[] active = new int[81];
+	}
+	
+	/**
+	 * Evaluates on the calling thread.
+	 * @param amountOfSimulations The maximal number of playouts per move.
+	 */
 	public MonteCarloGameSearchHeuristic(int amountOfSimulations) {
-		this.amountOfSimulations = amountOfSimulations;
+		this(amountOfSimulations, 1);
+	}
+	
+	/**
+	 * @param amountOfSimulations The maximal number of playouts per move.
+	 * @param threads The number of threads the moves of a round are split between.
+	 */
+	public MonteCarloGameSearchHeuristic(int amountOfSimulations, int threads) {
+		this.amountOfSimulations = Math.max(amountOfSimulations, 1);
+		this.threads = Math.max(threads, 1);
 	}
 	
 	@Override
 	public int evaluate(UltimateBoard ultimateBoard, GameStatus player) {
-		List<Integer> moves = ultimateBoard.getPossibleMoves();
-		Map<Integer, Integer> moveWins = new HashMap<>();
+		GameStatus winner = ultimateBoard.getWinner();
+		if (winner != GameStatus.RUNNING) {
+			return winner == player ? WIN : winner == GameStatus.DRAW ? 0 : -WIN;
+		}
 		
-		for (int move : moves) {
-			
-			UltimateBoard copy = ultimateBoard.deepClone();
-			copy.makeMove(move);
-			
-			for (int i = 0; i < amountOfSimulations; i++) {
-				GameStatus result = copy.checkGameWon(player);
-				if (result == player) {
-					moveWins.put(move, moveWins.getOrDefault(move, 0) + 1);
-					break;
-				} else if (result != GameStatus.RUNNING) {
-					break;
-				}
-				
-				List<Integer> possibleMoves = copy.getPossibleMoves();
-				
-				int nextMove = possibleMoves.get((int) (Math.random() * possibleMoves.size()));
-				
-				copy.makeMove(nextMove);
+		Scratch s = scratch.get();
+		int count = ultimateBoard.getPossibleMoves(s.moves);
+		for (int i = 0; i < count; i++) {
+			s.rewards[i] = 0;
+			s.playouts[i] = 0;
+			s.active[i] = i;
+		}
+		
+		GameStatus mover = ultimateBoard.getCurrentPlayer();
+		int active = count;
+		int played = 0;
+		
+		while (played < amountOfSimulations && active > 1) {
+			int batch = Math.min(BATCH_SIZE, amountOfSimulations - played);
+			if (threads > 1) {
+				simulateParallel(ultimateBoard, s, active, batch);
+			} else {
+				simulate(ultimateBoard, s, 0, active, 1, batch, Xoroshiro128.current());
 			}
+			played += batch;
+			playouts.add((long) batch * active);
+			active = eliminate(s, active);
 		}
 		
-		int bestMove = 0;
-		int bestWins = 0;
+		// A single move left from the start is still worth a look
+		if (played == 0) {
+			int batch = Math.min(BATCH_SIZE, amountOfSimulations);
+			simulate(ultimateBoard, s, 0, 1, 1, batch, Xoroshiro128.current());
+			playouts.add(batch);
+		}
 		
-		for (Map.Entry<Integer, Integer> entry : moveWins.entrySet()) {
-			if (entry.getValue() > bestWins) {
-				bestMove = entry.getKey();
-				bestWins = entry.getValue();
+		int best = s.active[0];
+		for (int k = 1; k < active; k++) {
+			if (mean(s, s.active[k]) > mean(s, best)) {
+				best = s.active[k];
 			}
 		}
 		
-		return bestWins;
+		int value = (int) Math.round((2 * mean(s, best) - 1) * SCALE);
+		return mover == player ? value : -value;
+	}
+	
+	/**
+	 * Plays the playouts of the active moves first, first + step, first + 2 * step...
+	 * @param ultimateBoard The position, moves are made and unmade on it.
+	 */
+	private static void simulate(UltimateBoard ultimateBoard, Scratch s, int first, int active, int step, int batch, Xoroshiro128 random) {
+		GameStatus mover = ultimateBoard.getCurrentPlayer();
+		
+		for (int k = first; k < active; k += step) {
+			int index = s.active[k];
+			ultimateBoard.makeLeanMove(s.moves[index]);
+			int rewards = 0;
+			for (int i = 0; i < batch; i++) {
+				GameStatus result = ultimateBoard.playRandomGame(random);
+				rewards += result == mover ? 2 : result == GameStatus.DRAW ? 1 : 0;
+			}
+			ultimateBoard.unmakeLeanMove();
+			
+			s.rewards[index] += rewards;
+			s.playouts[index] += batch;
+		}
+	}
+	
+	/**
+	 * Splits the active moves between the threads, every thread plays on its own copy of the board.
+	 * The threads write to different moves of the scratch buffers, the caller only reads them afterwards.
+	 */
+	private void simulateParallel(UltimateBoard ultimateBoard, Scratch s, int active, int batch) {
+		int tasks = Math.min(threads, active);
+		List<Callable<Void>> workers = new ArrayList<>(tasks);
+		
+		for (int t = 0; t < tasks; t++) {
+			int first = t;
+			UltimateBoard board = ultimateBoard.deepClone();
+			workers.add(() -> {
+				simulate(board, s, first, active, tasks, batch, Xoroshiro128.current());
+				return null;
+			});
+		}
+		
+		try {
+			for (Future<Void> future : getExecutor().invokeAll(workers)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Playout failed", e.getCause());
+		}
+	}
+	
+	/**
+	 * Drops the moves whose confidence interval lies below the one of the best move.
+	 * @return The number of moves still active, the best move among them.
+	 */
+	private static int eliminate(Scratch s, int active) {
+		double bestLower = Double.NEGATIVE_INFINITY;
+		for (int k = 0; k < active; k++) {
+			int index = s.active[k];
+			bestLower = Math.max(bestLower, mean(s, index) - halfWidth(s, index));
+		}
+		
+		int kept = 0;
+		for (int k = 0; k < active; k++) {
+			int index = s.active[k];
+			if (mean(s, index) + halfWidth(s, index) >= bestLower) {
+				s.active[kept++] = index;
+			}
+		}
+		return kept;
+	}
+	
+	/**
+	 * @return The share of won playouts of a move, draws count half.
+	 */
+	private static double mean(Scratch s, int index) {
+		return s.playouts[index] == 0 ? 0.5 : s.rewards[index] / (2.0 * s.playouts[index]);
+	}
+	
+	/**
+	 * Half the width of the Agresti-Coull interval, which unlike the plain normal interval
+	 * doesn't collapse for moves that have won or lost every playout so far.
+	 */
+	private static double halfWidth(Scratch s, int index) {
+		double n = s.playouts[index] + Z * Z;
+		double p = (s.rewards[index] / 2.0 + Z * Z / 2) / n;
+		return Z * Math.sqrt(p * (1 - p) / n);
+	}
+	
+	/**
+	 * @return The number of playouts of all evaluations so far.
+	 */
+	public long getPlayouts() {
+		return playouts.sum();
+	}
+	
+	private synchronized ThreadPoolExecutor getExecutor() {
+		if (executor == null) {
+			executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+				Thread thread = new Thread(runnable, "Playout worker");
+				thread.setDaemon(true);
+				return thread;
+			});
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
 	}
 }
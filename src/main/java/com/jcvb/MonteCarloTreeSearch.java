@@ -1,19 +1,110 @@
 package com.jcvb;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class MonteCarloTreeSearch implements Player {
 
+    /**
+     * How the search uses multiple cores.
+     */
+    public enum Mode {
+        /**
+         * A single tree on the calling thread.
+         */
+        SEQUENTIAL,
+        /**
+         * Independent trees on every thread, the visit counts of the root children are summed up at the deadline.
+         * Every thread has its own tree of the full node budget, so the memory grows with the number of threads.
+         */
+        ROOT_PARALLEL,
+        /**
+         * A single tree, but every expanded node is simulated {@link #LEAF_ROLLOUTS} times per thread
+         * and the results are backed up together.
+         */
+        LEAF_PARALLEL
+    }
+
     private final GameStatus player;
     private final int simulations = 300000;  // Number of MCTS simulations
     private final double explorationConstant = Math.sqrt(2);  // UCT exploration constant
-    private final int msPerMove = 500;
+    private final int msPerMove;
+    private final Mode mode;
+    private final int threads;
+    private final int nodeBudget;
+    private final Tree[] trees;
+    private ThreadPoolExecutor executor;
+    private Xoroshiro128 random = Xoroshiro128.current().split();
+    private boolean quiet;
+    private SearchInfo searchInfo = SearchInfo.NONE;
+    private long reusedVisits;
+
+    // The own last move and the position after it, used to find the subtree to keep on the next call
+    private int ownMove = -1;
+    private int ownPly = -1;
+    private long ownHash;
+
+    /**
+     * Default number of nodes per tree, about 56 MB at seven ints per node.
+     */
+    public static final int DEFAULT_NODE_BUDGET = 1 << 21;
+
+    /**
+     * Room for the root and all its children, so there is always a move to choose.
+     */
+    public static final int MIN_NODE_BUDGET = 1 + 81;
+
+    public static final int DEFAULT_MS_PER_MOVE = 500;
+
+    /**
+     * Rollouts per thread and leaf for LEAF_PARALLEL. A single rollout is too short to be worth handing
+     * to another thread, so every thread plays a batch of them per submission.
+     */
+    public static final int LEAF_ROLLOUTS = 8;
+
+    /**
+     * Cached copy of {@link GameStatus#values()}, which allocates a new array on every call.
+     */
+    private static final GameStatus[] STATUSES = GameStatus.values();
 
     public MonteCarloTreeSearch(GameStatus player) {
+        this(player, Mode.SEQUENTIAL, 1);
+    }
+
+    /**
+     * @param mode How the search is parallelized.
+     * @param threads The number of trees for ROOT_PARALLEL or of threads simulating each leaf for LEAF_PARALLEL, ignored for SEQUENTIAL.
+     */
+    public MonteCarloTreeSearch(GameStatus player, Mode mode, int threads) {
+        this(player, mode, threads, DEFAULT_NODE_BUDGET);
+    }
+
+    /**
+     * @param nodeBudget The maximum number of nodes of each tree, at least {@link #MIN_NODE_BUDGET}.
+     *                   Once a tree is full, its leaves are simulated without being expanded.
+     *                   A node takes 28 bytes, ROOT_PARALLEL allocates this budget once per thread.
+     */
+    public MonteCarloTreeSearch(GameStatus player, Mode mode, int threads, int nodeBudget) {
+        this(player, mode, threads, nodeBudget, DEFAULT_MS_PER_MOVE);
+    }
+
+    /**
+     * @param msPerMove The wall-clock time of every search.
+     */
+    public MonteCarloTreeSearch(GameStatus player, Mode mode, int threads, int nodeBudget, int msPerMove) {
         this.player = player;
+        this.msPerMove = msPerMove;
+        this.mode = mode;
+        this.threads = (mode == Mode.SEQUENTIAL) ? 1 : Math.max(threads, 1);
+        this.nodeBudget = Math.max(nodeBudget, MIN_NODE_BUDGET);
+        this.trees = new Tree[(mode == Mode.ROOT_PARALLEL) ? this.threads : 1];
     }
 
     @Override
@@ -21,86 +112,303 @@ public class MonteCarloTreeSearch implements Player {
         int bestMove = findBestMove(ultimateBoard);
         if (bestMove != -1) {
             ultimateBoard.makeMove(bestMove);
+            ownMove = bestMove;
+            ownPly = ultimateBoard.getPly();
+            ownHash = ultimateBoard.getHash();
         }
     }
 
     private int findBestMove(UltimateBoard ultimateBoard) {
-        Node root = new Node(ultimateBoard.deepClone(), null, -1);
-        long start = System.currentTimeMillis();
-        int iteration_count = 0;
-        while(System.currentTimeMillis() - start < msPerMove) {
-            iteration_count++;
-            Node selectedNode = selectNode(root);
-            GameStatus winner = selectedNode.ultimateBoard.getWinner();
+        long deadline = System.currentTimeMillis() + msPerMove;
+        int opponentMove = getOpponentMove(ultimateBoard);
+
+        if (mode == Mode.ROOT_PARALLEL) {
+            return findBestMoveRootParallel(ultimateBoard, opponentMove, deadline);
+        }
+
+        Tree tree = getTree(0);
+        prepareTree(tree, ultimateBoard, opponentMove);
+        int reused = tree.visits[Tree.ROOT];
+        reusedVisits = reused;
+        int playouts = buildTree(tree, ultimateBoard.deepClone(), deadline, new int[81], random);
+        if (!quiet) System.out.println("MCTS went though " + playouts + " playouts (" + tree.size + " nodes, " + reused + " visits reused)");
+        // Choose the best move from the root node based on visit count
+        int bestChild = tree.getBestChild(Tree.ROOT);
+        int score = (bestChild != -1) ? score(tree.wins[bestChild], tree.visits[bestChild]) : -1;
+        searchInfo = new SearchInfo(playouts, -1, Double.NaN, score, tree.size);
+        return (bestChild != -1) ? tree.move[bestChild] : -1;
+    }
+
+    /**
+     * @return The average reward of a node in per mille: 1000 for a sure win, 0 for a draw, -1000 for a sure loss.
+     */
+    private static int score(long wins, long visits) {
+        return (visits == 0) ? 0 : (int) (wins * 1000 / visits);
+    }
+
+    @Override
+    public SearchInfo getSearchInfo() {
+        return searchInfo;
+    }
+
+    /**
+     * @return The visits the root of the last search kept from the previous search, summed over all trees.
+     * 0 if the tree was started anew.
+     */
+    public long getReusedVisits() {
+        return reusedVisits;
+    }
+
+    /**
+     * Looks up a node of the (first) tree by the moves leading to it from the position of the last search.
+     * @return The visits of the node, 0 if it isn't in the tree.
+     */
+    public int getVisits(int... moves) {
+        Tree tree = trees[0];
+        if (tree == null) {
+            return 0;
+        }
+
+        int node = Tree.ROOT;
+        for (int move : moves) {
+            node = tree.findChild(node, move);
+            if (node == -1) {
+                return 0;
+            }
+        }
+        return tree.visits[node];
+    }
+
+    /**
+     * The trees are allocated on first use and reused for every following move.
+     */
+    private Tree getTree(int index) {
+        if (trees[index] == null) {
+            trees[index] = new Tree(nodeBudget);
+        }
+        return trees[index];
+    }
+
+    /**
+     * @return The move the opponent answered the own last move with, or -1 if the position doesn't follow from it.
+     */
+    private int getOpponentMove(UltimateBoard ultimateBoard) {
+        if (ownMove == -1 || ultimateBoard.getPly() != ownPly + 1) {
+            return -1;
+        }
+
+        UltimateBoard previous = ultimateBoard.deepClone();
+        previous.unmakeMove();
+        return (previous.getHash() == ownHash) ? ultimateBoard.getLastMove() : -1;
+    }
+
+    /**
+     * Keeps the subtree below the own last move and the opponent's answer, or starts a new tree if there is none.
+     */
+    private void prepareTree(Tree tree, UltimateBoard ultimateBoard, int opponentMove) {
+        int node = (opponentMove == -1) ? -1 : tree.findChild(Tree.ROOT, ownMove);
+        if (node != -1) {
+            node = tree.findChild(node, opponentMove);
+        }
+
+        if (node != -1) {
+            tree.promote(node);
+        } else {
+            tree.reset(ultimateBoard.getCurrentPlayer());
+        }
+    }
+
+    /**
+     * Searches one tree per thread and picks the move with the most visits over all trees.
+     */
+    private int findBestMoveRootParallel(UltimateBoard ultimateBoard, int opponentMove, long deadline) {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        reusedVisits = 0;
+
+        for (int i = 0; i < threads; i++) {
+            Tree tree = getTree(i);
+            prepareTree(tree, ultimateBoard, opponentMove);
+            reusedVisits += tree.visits[Tree.ROOT];
+            UltimateBoard board = ultimateBoard.deepClone();
+            Xoroshiro128 treeRandom = random.split();
+            tasks.add(() -> buildTree(tree, board, deadline, new int[81], treeRandom));
+        }
+
+        int playouts = 0;
+        for (Future<Integer> future : invokeAll(tasks)) {
+            playouts += getResult(future);
+        }
+        if (!quiet) System.out.println("MCTS went though " + playouts + " playouts in " + threads + " trees");
+
+        // Merge the root children by move, all trees were expanded from the same position
+        long[] visits = new long[81];
+        long[] wins = new long[81];
+        int treeSize = 0;
+        for (Tree tree : trees) {
+            int start = tree.childStart[Tree.ROOT];
+            for (int child = start; child < start + tree.childCount[Tree.ROOT]; child++) {
+                visits[tree.move[child]] += tree.visits[child];
+                wins[tree.move[child]] += tree.wins[child];
+            }
+            treeSize += tree.size;
+        }
+
+        int bestMove = -1;
+        for (int move = 0; move < visits.length; move++) {
+            if (visits[move] > 0 && (bestMove == -1 || visits[move] > visits[bestMove])) {
+                bestMove = move;
+            }
+        }
+        int score = (bestMove != -1) ? score(wins[bestMove], visits[bestMove]) : -1;
+        searchInfo = new SearchInfo(playouts, -1, Double.NaN, score, treeSize);
+        return bestMove;
+    }
+
+    /**
+     * Runs MCTS iterations on the given tree until the deadline.
+     * A single working board is descended and unwound again for every iteration, the nodes don't store boards.
+     * @param board A private copy of the root position.
+     * @param moveBuffer Scratch space for the move generation.
+     * @param random The generator for the rollouts, only used by this tree.
+     * @return The number of playouts, one per iteration or {@link #LEAF_ROLLOUTS} per thread for simulated LEAF_PARALLEL leaves.
+     */
+    private int buildTree(Tree tree, UltimateBoard board, long deadline, int[] moveBuffer, Xoroshiro128 random) {
+        int rootPly = board.getPly();
+        int playouts = 0;
+        Xoroshiro128[] leafRandoms = new Xoroshiro128[threads];
+        for (int i = 0; i < threads; i++) {
+            leafRandoms[i] = random.split();
+        }
+
+        // The first iteration always runs, so there is a move to play even if allocating the tree used up the time
+        do {
+            playouts++;
+            int selectedNode = selectNode(tree, board);
+            int depth = board.getPly() - rootPly;
+            GameStatus winner = board.getWinner();
 
             // If the game isn't finished, expand and simulate
             if (winner == GameStatus.RUNNING) {
-                expandNode(selectedNode);
-                GameStatus rolloutResult = simulateRandomPlay(selectedNode);
-                backpropagate(selectedNode, rolloutResult);
+                expandNode(tree, selectedNode, board, moveBuffer);
+                if (mode == Mode.LEAF_PARALLEL) {
+                    simulateLeafParallel(tree, selectedNode, depth, board, leafRandoms);
+                    playouts += threads * LEAF_ROLLOUTS - 1;
+                } else {
+                    GameStatus rolloutResult = board.playRandomGame(random);
+                    tree.backpropagate(selectedNode, depth, rolloutResult);
+                }
             } else {
                 // Game already finished, propagate result immediately
-                backpropagate(selectedNode, winner);
+                tree.backpropagate(selectedNode, depth, winner);
             }
-        }
-        System.out.println("MCTS went though " + iteration_count + " iterations");
-        // Choose the best move from the root node based on visit count or win rate
-        Node bestChild = root.getBestChild();
-        return (bestChild != null) ? bestChild.move : -1;
+
+            // Return to the root position
+            while (board.getPly() > rootPly) {
+                board.unmakeLeanMove();
+            }
+        } while (System.currentTimeMillis() < deadline);
+        return playouts;
     }
 
-    private Node selectNode(Node node) {
-        while (!node.isLeaf()) {
-            node = node.getBestUCTChild(explorationConstant);
+    /**
+     * Descends the tree and applies the moves of the chosen path to the board.
+     */
+    private int selectNode(Tree tree, UltimateBoard board) {
+        int node = Tree.ROOT;
+        while (!tree.isLeaf(node)) {
+            node = tree.getBestUCTChild(node, explorationConstant);
+            board.makeLeanMove(tree.move[node]);
         }
         return node;
     }
 
-    private void expandNode(Node node) {
-        List<Integer> possibleMoves = node.ultimateBoard.getPossibleMoves();
-        for (int move : possibleMoves) {
-            UltimateBoard newBoard = node.ultimateBoard.deepClone();
-            newBoard.makeMove(move);  // Applying the move on the cloned board
-            node.children.add(new Node(newBoard, node, move));
+    /**
+     * Adds the children of the node. If the tree is full, the node stays a leaf and is only simulated.
+     */
+    private void expandNode(Tree tree, int node, UltimateBoard board, int[] moveBuffer) {
+        int count = board.getPossibleMoves(moveBuffer);
+        tree.expand(node, moveBuffer, count);
+    }
+
+    /**
+     * Runs {@link #LEAF_ROLLOUTS} rollouts per thread from the current position and backs up all results.
+     * The calling thread plays its share itself instead of waiting. The rollouts only read the board, so they can share it.
+     * @param leafRandoms One generator per thread.
+     */
+    private void simulateLeafParallel(Tree tree, int node, int depth, UltimateBoard board, Xoroshiro128[] leafRandoms) {
+        List<Future<int[]>> batches = new ArrayList<>(threads - 1);
+        for (int i = 1; i < threads; i++) {
+            Xoroshiro128 leafRandom = leafRandoms[i];
+            batches.add(getExecutor().submit(() -> simulateBatch(board, leafRandom)));
+        }
+
+        backpropagateBatch(tree, node, depth, simulateBatch(board, leafRandoms[0]));
+        for (Future<int[]> batch : batches) {
+            backpropagateBatch(tree, node, depth, getResult(batch));
         }
     }
 
     /**
-     * Random simulation (rollout phase).
+     * @return The number of rollouts ending in each result, indexed by the ordinal of {@link GameStatus}.
      */
-    private GameStatus simulateRandomPlay(Node node) {
-        UltimateBoard simulatedBoard = node.ultimateBoard.deepClone();
-        GameStatus currentPlayer = node.playerToMove;
-        Random random = new Random();
+    private static int[] simulateBatch(UltimateBoard board, Xoroshiro128 random) {
+        int[] results = new int[STATUSES.length];
+        for (int i = 0; i < LEAF_ROLLOUTS; i++) {
+            results[board.playRandomGame(random).ordinal()]++;
+        }
+        return results;
+    }
 
-        // Play randomly until the game is won or a draw
-        while (!simulatedBoard.isGameOver()) {
-            List<Integer> possibleMoves = simulatedBoard.getPossibleMoves();
-            if (possibleMoves.isEmpty()) {
-                break;
+    private static void backpropagateBatch(Tree tree, int node, int depth, int[] results) {
+        for (GameStatus result : STATUSES) {
+            for (int i = 0; i < results[result.ordinal()]; i++) {
+                tree.backpropagate(node, depth, result);
             }
+        }
+    }
 
-            // Randomly select a move
-            int randomMove = possibleMoves.get(random.nextInt(possibleMoves.size()));
-            simulatedBoard.makeMove(randomMove);
-
-            // Switch to the next player
-            currentPlayer = currentPlayer.next();
+    private <T> List<Future<T>> invokeAll(List<Callable<T>> tasks) {
+        try {
+            return getExecutor().invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("MCTS was interrupted", e);
         }
+    }
 
-        return simulatedBoard.checkGameWon(currentPlayer);
+    private static <T> T getResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("MCTS was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("MCTS worker failed", e.getCause());
+        }
     }
 
-    private void backpropagate(Node node, GameStatus result) {
-        while (node != null) {
-            node.visits++;
-            if (result == node.playerToMove.next()) {
-                node.wins++;  // Reward if it's the winning player
-            } else {
-                node.wins--;  // Penalize if it's the loosing player or if it's a draw
-            }
-            node = node.parent;
+    private ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "MCTS worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
         }
+        return executor;
+    }
+
+    /**
+     * Reseeds the rollouts, so that searches with the same number of iterations give the same result.
+     */
+    public void setSeed(long seed) {
+        random = new Xoroshiro128(seed);
+    }
+
+    @Override
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
     }
 
     @Override
@@ -117,47 +425,192 @@ public class MonteCarloTreeSearch implements Player {
 
     @Override
     public String getParam() {
-        return "Ms/Move: " + msPerMove;
+        if (mode == Mode.SEQUENTIAL) {
+            return "Ms/Move: " + msPerMove;
+        }
+        return "Ms/Move: " + msPerMove + " Mode: " + mode + " Threads: " + threads;
     }
 
-    // Inner class for tree node representation
-    private class Node {
-        UltimateBoard ultimateBoard;
-        Node parent;
-        List<Node> children;
-        int move;  // Integer representing the move index
-        GameStatus playerToMove;
-        int wins;
-        int visits;
+    /**
+     * Arena for the nodes of a search tree. <p>
+     * Nodes are indices into preallocated primitive arrays instead of objects, so growing the tree
+     * doesn't create garbage and the arrays are reused for every move.
+     * The children of a node are allocated next to each other, so a node only needs their start and count.
+     * Nodes don't store boards, the position of a node is reached by replaying the moves from the root.
+     */
+    private static final class Tree {
+        static final int ROOT = 0;
 
-        public Node(UltimateBoard ultimateBoard, Node parent, int move) {
-            this.ultimateBoard = ultimateBoard;
-            this.parent = parent;
-            this.move = move;
-            this.children = new ArrayList<>();
-            this.playerToMove = (parent == null) ? player : (parent.playerToMove == GameStatus.ONE ? GameStatus.TWO : GameStatus.ONE);
-            this.wins = 0;
-            this.visits = 0;
+        final int[] parent;
+        final int[] move;  // Integer representing the move index, -1 for the root
+        final int[] childStart;
+        final int[] childCount;
+        final int[] visits;
+        final int[] wins;
+        final int[] remap;  // Scratch space for promote
+        int size;
+        GameStatus rootPlayer;  // The player to move at the root
+
+        Tree(int capacity) {
+            parent = new int[capacity];
+            move = new int[capacity];
+            childStart = new int[capacity];
+            childCount = new int[capacity];
+            visits = new int[capacity];
+            wins = new int[capacity];
+            remap = new int[capacity];
         }
 
-        public boolean isLeaf() {
-            return children.isEmpty();
+        /**
+         * Discards all nodes and creates a new root.
+         */
+        void reset(GameStatus rootPlayer) {
+            this.rootPlayer = rootPlayer;
+            size = 0;
+            init(ROOT, -1, -1);
+            size = 1;
         }
 
-        public Node getBestChild() {
-            return children.stream().max(Comparator.comparingInt(n -> n.visits)).orElse(null);
+        private void init(int node, int parentNode, int nodeMove) {
+            parent[node] = parentNode;
+            move[node] = nodeMove;
+            childStart[node] = 0;
+            childCount[node] = 0;
+            visits[node] = 0;
+            wins[node] = 0;
         }
 
-        public Node getBestUCTChild(double explorationConstant) {
-            return children.stream().max(Comparator.comparingDouble(n -> n.getUCTValue(explorationConstant))).orElse(null);
+        /**
+         * Makes the node the new root and drops all nodes outside of its subtree. <p>
+         * Children are always allocated behind their parent, so a single pass in allocation order
+         * visits parents first and can move every kept node to a lower or equal index in place.
+         */
+        void promote(int node) {
+            remap[node] = ROOT;
+            copy(node, ROOT);
+            parent[ROOT] = -1;
+            move[ROOT] = -1;
+            int count = 1;
+
+            for (int old = node + 1; old < size; old++) {
+                int oldParent = parent[old];
+                if (oldParent < node || remap[oldParent] == -1) {
+                    remap[old] = -1;
+                    continue;
+                }
+
+                remap[old] = count;
+                copy(old, count);
+                parent[count] = remap[oldParent];
+                count++;
+            }
+
+            // The children were moved as whole blocks, so their start only has to be translated
+            for (int i = 0; i < count; i++) {
+                if (childCount[i] > 0) {
+                    childStart[i] = remap[childStart[i]];
+                }
+            }
+            size = count;
+        }
+
+        private void copy(int from, int to) {
+            parent[to] = parent[from];
+            move[to] = move[from];
+            childStart[to] = childStart[from];
+            childCount[to] = childCount[from];
+            visits[to] = visits[from];
+            wins[to] = wins[from];
         }
 
-        public double getUCTValue(double explorationConstant) {
-            if (visits == 0) return Double.MAX_VALUE;
-            double winRate = (double) wins / visits;
-            double explorationTerm = explorationConstant * Math.sqrt(Math.log(parent.visits) / visits);
+        /**
+         * @return The child reached by the move or -1 if the node has none.
+         */
+        int findChild(int node, int childMove) {
+            int end = childStart[node] + childCount[node];
+            for (int child = childStart[node]; child < end; child++) {
+                if (move[child] == childMove) {
+                    return child;
+                }
+            }
+            return -1;
+        }
+
+        boolean isLeaf(int node) {
+            return childCount[node] == 0;
+        }
+
+        /**
+         * @return False if the tree has no room left for the children.
+         */
+        boolean expand(int node, int[] moves, int count) {
+            if (count > parent.length - size) {
+                return false;
+            }
+
+            for (int i = 0; i < count; i++) {
+                init(size + i, node, moves[i]);
+            }
+            childStart[node] = size;
+            childCount[node] = count;
+            size += count;
+            return true;
+        }
+
+        /**
+         * @return The child with the most visits or -1 if the node has no children.
+         */
+        int getBestChild(int node) {
+            int best = -1;
+            int end = childStart[node] + childCount[node];
+            for (int child = childStart[node]; child < end; child++) {
+                if (best == -1 || visits[child] > visits[best]) {
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        int getBestUCTChild(int node, double explorationConstant) {
+            double logParentVisits = Math.log(visits[node]);
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            int end = childStart[node] + childCount[node];
+            for (int child = childStart[node]; child < end; child++) {
+                double value = getUCTValue(child, explorationConstant, logParentVisits);
+                if (value > bestValue) {
+                    best = child;
+                    bestValue = value;
+                }
+            }
+            return best;
+        }
+
+        double getUCTValue(int node, double explorationConstant, double logParentVisits) {
+            if (visits[node] == 0) return Double.MAX_VALUE;
+            double winRate = (double) wins[node] / visits[node];
+            double explorationTerm = explorationConstant * Math.sqrt(logParentVisits / visits[node]);
             return winRate + explorationTerm;
         }
+
+        /**
+         * Adds the result to the node and all its ancestors.
+         * @param depth The number of moves between the root and the node, used to tell which player made the move into a node.
+         */
+        void backpropagate(int node, int depth, GameStatus result) {
+            // The root player made the moves into the nodes at odd depths
+            GameStatus mover = (depth % 2 == 1) ? rootPlayer : rootPlayer.next();
+            while (node != -1) {
+                visits[node]++;
+                if (result == mover) {
+                    wins[node]++;  // Reward if it's the winning player
+                } else if (result != GameStatus.DRAW) {
+                    wins[node]--;  // Penalize if it's the loosing player, a draw is neutral
+                }
+                mover = mover.next();
+                node = parent[node];
+            }
+        }
     }
 
     public static void main(String[] args) {
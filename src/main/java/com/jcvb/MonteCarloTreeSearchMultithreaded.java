@@ -1,24 +1,66 @@
 package com.jcvb;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Tree-parallel Monte Carlo Tree Search. <p>
+ * All worker threads descend the same tree concurrently. A thread passing a node adds a virtual loss to it,
+ * so the other threads are steered into different branches until the real result is backed up.
+ * The statistics of a node are packed into a single long which is only changed with atomic additions,
+ * no locks are taken anywhere in the search.
+ */
 public class MonteCarloTreeSearchMultithreaded implements Player {
 
     private final GameStatus player;
-    private final int simulations = 50000;  // Number of MCTS simulations
     private final double explorationConstant = Math.sqrt(2);  // UCT exploration constant
-    private final ExecutorService executorService;
+    private final int msPerMove;
+    private final int threads;
+    private final ThreadPoolExecutor executorService;
+    private boolean quiet;
+    private SearchInfo searchInfo = SearchInfo.NONE;
+    private long rootVisits;
+
+    /**
+     * Idle workers end after this time, so players which are no longer used don't keep their threads,
+     * e.g. the players of finished tournament games.
+     */
+    private static final long WORKER_KEEP_ALIVE_MS = 1000;
+
+    /**
+     * Number of losses added to a node while a thread is searching below it.
+     */
+    private static final int VIRTUAL_LOSS = 3;
+
+    /**
+     * Rewards are counted in half points, so a draw is worth one and a win two.
+     */
+    private static final int WIN = 2;
+    private static final int DRAW = 1;
+
+    private final Xoroshiro128 seeds = Xoroshiro128.current().split();
 
     public MonteCarloTreeSearchMultithreaded(GameStatus player) {
+        this(player, 500, Runtime.getRuntime().availableProcessors());
+    }
+
+    public MonteCarloTreeSearchMultithreaded(GameStatus player, int msPerMove, int threads) {
         this.player = player;
-        // Create a fixed thread pool based on the number of available processors
-        this.executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.msPerMove = msPerMove;
+        this.threads = Math.max(threads, 1);
+        this.executorService = new ThreadPoolExecutor(this.threads, this.threads, WORKER_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "MCTS worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executorService.allowCoreThreadTimeOut(true);
     }
 
     @Override
@@ -30,97 +72,154 @@ public class MonteCarloTreeSearchMultithreaded implements Player {
     }
 
     private int findBestMove(UltimateBoard ultimateBoard) {
-        Node root = new Node(ultimateBoard.deepClone(), null, -1);
-        for (int i = 0; i < simulations; i++) {
-            Node selectedNode = selectNode(root);
-            GameStatus winner = selectedNode.ultimateBoard.checkGameWon(selectedNode.playerToMove);
+        Node root = new Node(-1, null);
+        long deadline = System.nanoTime() + msPerMove * 1_000_000L;
+        AtomicLong iterations = new AtomicLong();
+        List<Callable<Void>> workers = new ArrayList<>();
 
-            // If the game isn't finished, expand and simulate
-            if (winner == GameStatus.RUNNING) {
-                expandNode(selectedNode);
-                GameStatus rolloutResult = simulateRandomPlay(selectedNode);
-                backpropagate(selectedNode, rolloutResult);
-            } else {
-                // Game already finished, propagate result immediately
-                backpropagate(selectedNode, winner);
-            }
+        for (int i = 0; i < threads; i++) {
+            UltimateBoard board = ultimateBoard.deepClone();
+            Xoroshiro128 random = seeds.split();
+            workers.add(() -> {
+                iterations.addAndGet(runWorker(root, board, random, deadline));
+                return null;
+            });
         }
 
-        // Choose the best move from the root node based on visit count or win rate
+        try {
+            executorService.invokeAll(workers);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        rootVisits = Node.visits(root.stats);
+        if (!quiet) System.out.println("MCTS went though " + iterations.get() + " iterations with " + threads + " threads");
+        // Choose the best move from the root node based on visit count
         Node bestChild = root.getBestChild();
+        if (bestChild != null) {
+            long stats = bestChild.stats;
+            // From half points to the signed scale of SearchInfo, a draw is worth 0
+            long visits = Math.max(Node.visits(stats), 1);
+            int score = (int) ((Node.rewards(stats) - visits) * 1000 / visits);
+            searchInfo = new SearchInfo(iterations.get(), -1, Double.NaN, score, root.countNodes());
+        }
         return (bestChild != null) ? bestChild.move : -1;
     }
 
-    private Node selectNode(Node node) {
-        while (!node.isLeaf()) {
-            node = node.getBestUCTChild(explorationConstant);
-        }
-        return node;
+    @Override
+    public SearchInfo getSearchInfo() {
+        return searchInfo;
     }
 
-    private void expandNode(Node node) {
-        List<Integer> possibleMoves = node.ultimateBoard.getPossibleMoves();
-        List<Callable<Node>> tasks = new ArrayList<>();
+    /**
+     * @return The visits of the root after the last search. Once all virtual losses are replaced by results
+     * this equals the number of iterations.
+     */
+    public long getRootVisits() {
+        return rootVisits;
+    }
 
-        for (int move : possibleMoves) {
-            tasks.add(() -> {
-                UltimateBoard newBoard = node.ultimateBoard.deepClone();
-                newBoard.makeMove(move);  // Applying the move on the cloned board
-                return new Node(newBoard, node, move);
-            });
-        }
+    /**
+     * Runs iterations on the shared tree until the deadline.
+     * @param board The private board of this worker, positioned at the root.
+     * @return The number of iterations done.
+     */
+    private long runWorker(Node root, UltimateBoard board, Xoroshiro128 random, long deadline) {
+        int rootPly = board.getPly();
+        Node[] path = new Node[82];
+        int[] moves = new int[81];
+        long count = 0;
 
-        try {
-            // Submit the tasks and get the results (child nodes)
-            List<Future<Node>> futures = executorService.invokeAll(tasks);
-            for (Future<Node> future : futures) {
-                Node childNode = future.get();
-                node.children.add(childNode);
+        while (System.nanoTime() < deadline) {
+            count++;
+
+            // Selection, every node on the path gets a virtual loss
+            int length = 0;
+            Node node = root;
+            node.addStats(VIRTUAL_LOSS, 0);
+            path[length++] = node;
+
+            Node[] children;
+            while ((children = node.children) != null) {
+                node = getBestUCTChild(node, children);
+                node.addStats(VIRTUAL_LOSS, 0);
+                path[length++] = node;
+                board.makeLeanMove(node.move);
+            }
+
+            GameStatus winner = board.getWinner();
+
+            // Only one thread expands a leaf, the others simulate from it right away
+            if (winner == GameStatus.RUNNING) {
+                if (node.tryLockExpansion()) {
+                    expandNode(node, board, moves);
+                }
+                winner = board.playRandomGame(random);
+            }
+
+            backpropagate(path, length, winner);
+
+            // Return to the root position
+            while (board.getPly() > rootPly) {
+                board.unmakeLeanMove();
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
+        return count;
     }
 
-    /**
-     * Random simulation (rollout phase).
-     */
-    private GameStatus simulateRandomPlay(Node node) {
-        UltimateBoard simulatedBoard = node.ultimateBoard.deepClone();
-        GameStatus currentPlayer = node.playerToMove;
-        Random random = new Random();
-
-        // Play randomly until the game is won or a draw
-        while (simulatedBoard.checkGameWon(currentPlayer) == GameStatus.RUNNING) {
-            List<Integer> possibleMoves = simulatedBoard.getPossibleMoves();
-            if (possibleMoves.isEmpty()) {
-                break;
+    private Node getBestUCTChild(Node parent, Node[] children) {
+        double logParentVisits = Math.log(Math.max(Node.visits(parent.stats), 1));
+        Node best = children[0];
+        double bestValue = Double.NEGATIVE_INFINITY;
+
+        for (Node child : children) {
+            double value = child.getUCTValue(explorationConstant, logParentVisits);
+            if (value > bestValue) {
+                best = child;
+                bestValue = value;
             }
+        }
+        return best;
+    }
 
-            // Randomly select a move
-            int randomMove = possibleMoves.get(random.nextInt(possibleMoves.size()));
-            simulatedBoard.makeMove(randomMove);
+    private void expandNode(Node node, UltimateBoard board, int[] moves) {
+        int count = board.getPossibleMoves(moves);
+        Node[] children = new Node[count];
+        GameStatus mover = board.getCurrentPlayer();
 
-            // Switch to the next player
-            currentPlayer = currentPlayer.next();
+        for (int i = 0; i < count; i++) {
+            children[i] = new Node(moves[i], mover);
         }
 
-        return simulatedBoard.checkGameWon(currentPlayer);
+        // Publishing the finished array makes the children visible to all threads at once
+        node.children = children;
     }
 
-    private void backpropagate(Node node, GameStatus result) {
-        while (node != null) {
-            node.visits++;
-            if (result == node.playerToMove) {
-                node.wins++;
+    /**
+     * Replaces the virtual losses on the path with the real result.
+     * Every node is rewarded from the view of the player who made the move leading to it.
+     */
+    private void backpropagate(Node[] path, int length, GameStatus result) {
+        for (int i = 0; i < length; i++) {
+            Node node = path[i];
+            int reward = 0;
+            if (result == GameStatus.DRAW) {
+                reward = DRAW;
+            } else if (result == node.mover) {
+                reward = WIN;
             }
-            node = node.parent;
+            node.addStats(1 - VIRTUAL_LOSS, reward);
         }
     }
 
+    @Override
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+
     @Override
     public String getName() {
-        return "MonteCarloTreeSearch (Multithreaded Expansion)";
+        return "MonteCarloTreeSearch (Tree Parallel)";
     }
 
     @Override
@@ -132,49 +231,104 @@ public class MonteCarloTreeSearchMultithreaded implements Player {
 
     @Override
     public String getParam() {
-        return "";
+        return "Ms/Move: " + msPerMove + " Threads: " + threads;
     }
 
     // Inner class for tree node representation
-    private class Node {
-        UltimateBoard ultimateBoard;
-        Node parent;
-        List<Node> children;
-        int move;  // Integer representing the move index
-        GameStatus playerToMove;
-        int wins;
-        int visits;
-
-        public Node(UltimateBoard ultimateBoard, Node parent, int move) {
-            this.ultimateBoard = ultimateBoard;
-            this.parent = parent;
+    private static class Node {
+        private static final VarHandle STATS;
+        private static final VarHandle EXPANDING;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                STATS = lookup.findVarHandle(Node.class, "stats", long.class);
+                EXPANDING = lookup.findVarHandle(Node.class, "expanding", boolean.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        final int move;  // Integer representing the move index
+        final GameStatus mover;  // The player who made the move
+        volatile Node[] children;
+
+        /**
+         * Visits in the upper 32 bits, rewards in half points in the lower 32 bits.
+         */
+        volatile long stats;
+        volatile boolean expanding;
+
+        Node(int move, GameStatus mover) {
             this.move = move;
-            this.children = new ArrayList<>();
-            this.playerToMove = (parent == null) ? player : (parent.playerToMove == GameStatus.ONE ? GameStatus.TWO : GameStatus.ONE);
-            this.wins = 0;
-            this.visits = 0;
+            this.mover = mover;
+        }
+
+        /**
+         * Atomically adds visits and rewards. The visits may be negative to remove virtual losses,
+         * as the rewards never exceed 32 bits the addition doesn't carry into the visits.
+         */
+        void addStats(int visits, int reward) {
+            STATS.getAndAdd(this, ((long) visits << 32) + reward);
+        }
+
+        /**
+         * @return True for exactly one caller, which is then responsible for expanding the node.
+         */
+        boolean tryLockExpansion() {
+            return EXPANDING.compareAndSet(this, false, true);
         }
 
-        public boolean isLeaf() {
-            return children.isEmpty();
+        static long visits(long stats) {
+            return stats >> 32;
         }
 
-        public Node getBestChild() {
-            return children.stream().max((n1, n2) -> Integer.compare(n1.visits, n2.visits)).orElse(null);
+        static long rewards(long stats) {
+            return stats & 0xFFFFFFFFL;
         }
 
-        public Node getBestUCTChild(double explorationConstant) {
-            return children.stream().max((n1, n2) -> Double.compare(n1.getUCTValue(explorationConstant), n2.getUCTValue(explorationConstant))).orElse(null);
+        Node getBestChild() {
+            Node[] current = children;
+            if (current == null) {
+                return null;
+            }
+
+            Node best = null;
+            for (Node child : current) {
+                if (best == null || visits(child.stats) > visits(best.stats)) {
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * @return The number of nodes in the subtree of this node, including itself.
+         */
+        int countNodes() {
+            int count = 1;
+            Node[] current = children;
+            if (current != null) {
+                for (Node child : current) {
+                    count += child.countNodes();
+                }
+            }
+            return count;
         }
 
-        public double getUCTValue(double explorationConstant) {
-            if (visits == 0) return Double.MAX_VALUE;
-            double winRate = (double) wins / visits;
-            double explorationTerm = explorationConstant * Math.sqrt(Math.log(parent.visits) / visits);
+        double getUCTValue(double explorationConstant, double logParentVisits) {
+            long current = stats;
+            long visits = visits(current);
+            if (visits <= 0) return Double.MAX_VALUE;
+            double winRate = (double) rewards(current) / (WIN * visits);
+            double explorationTerm = explorationConstant * Math.sqrt(logParentVisits / visits);
             return winRate + explorationTerm;
         }
     }
 
+    /**
+     * Ends the worker threads right away instead of after their keep-alive time.
+     */
     public void shutdown() {
         executorService.shutdown();
     }
@@ -0,0 +1,40 @@
+package com.jcvb;
+
+/**
+ * Orders the moves of a search node, so alpha-beta can cut off as early as possible. <p>
+ * Every search thread gets its own instance, implementations may keep state between nodes
+ * (e.g. killer moves) without synchronization.
+ * @see MiniMax#setMoveOrdering(java.util.function.Supplier)
+ */
+public interface MoveOrdering {
+	
+	/**
+	 * Sorts the moves in place, the most promising first.
+	 * @param ultimateBoard The position the moves are made in.
+	 * @param hashMove The best move stored in the transposition table, -1 if there is none.
+	 */
+	void order(UltimateBoard ultimateBoard, int[] moves, int count, int hashMove);
+	
+	/**
+	 * Called when a move caused a cutoff, so it can be tried earlier in similar positions.
+	 * @param ultimateBoard The position the move was made in.
+	 * @param depth The remaining depth of the node.
+	 */
+	default void cutoff(UltimateBoard ultimateBoard, int move, int depth) {
+	}
+	
+	/**
+	 * Only tries the hash move first and keeps the order of the move generator otherwise.
+	 */
+	static MoveOrdering hashMoveOnly() {
+		return (ultimateBoard, moves, count, hashMove) -> {
+			for (int i = 0; i < count; i++) {
+				if (moves[i] == hashMove) {
+					moves[i] = moves[0];
+					moves[0] = hashMove;
+					return;
+				}
+			}
+		};
+	}
+}
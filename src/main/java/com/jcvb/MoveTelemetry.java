@@ -0,0 +1,11 @@
+package com.jcvb;
+
+/**
+ * Timing and search statistics of a single move, collected by {@link Game}.
+ * @param ply The number of moves played before this one.
+ * @param player The player who made the move.
+ * @param move The move, 0-80.
+ * @param nanos The wall time of {@link Player#play(UltimateBoard)}.
+ * @param search What the player reported about its search.
+ */
+public record MoveTelemetry(int ply, GameStatus player, int move, long nanos, SearchInfo search) {}
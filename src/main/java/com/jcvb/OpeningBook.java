@@ -0,0 +1,183 @@
+package com.jcvb;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Book moves for the first plies of a game, built by {@link OpeningBookBuilder}. <p>
+ * Positions are keyed by their canonical hash, so a single entry serves all symmetric positions, and the move
+ * is stored in the orientation of the representative. The file is mapped into memory and the sorted entries
+ * are binary searched in place, a lookup reads about a dozen entries and allocates nothing. <p>
+ * File layout (big endian): the magic bytes "UTTB", a version byte, the number of entries as int and the entries
+ * sorted by key, each a long key, a byte move (0-80), a byte search depth (-1 if unknown) and a short score.
+ * @see BookPlayer
+ */
+public class OpeningBook {
+	
+	static final int MAGIC = 0x55545442;  // "UTTB"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 4 + 1 + 4;
+	static final int ENTRY_SIZE = 8 + 1 + 1 + 2;
+	
+	/**
+	 * A book position.
+	 * @param key The canonical hash of the position.
+	 * @param move The best move. Stored transformed like the position to its representative,
+	 *             {@link #lookup(UltimateBoard)} transforms it back to the orientation of the board.
+	 * @param depth The depth the move was searched to, -1 if unknown.
+	 * @param score The score of the move from the view of the player to move.
+	 */
+	public record Entry(long key, int move, int depth, int score) {}
+	
+	private final Path file;
+	private final MappedByteBuffer buffer;
+	private final int size;
+	
+	/**
+	 * Maps the file and checks its header.
+	 * @throws IOException If the file can't be read or is no opening book.
+	 */
+	public OpeningBook(Path file) throws IOException {
+		this.file = file;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Opening book larger than 2 GB: " + file);
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not an opening book: " + file);
+		}
+		if (buffer.get(4) != VERSION) {
+			throw new IOException("Unsupported opening book version " + buffer.get(4) + ": " + file);
+		}
+		size = buffer.getInt(5);
+		if ((long) HEADER_SIZE + (long) size * ENTRY_SIZE > buffer.limit()) {
+			throw new IOException("Truncated opening book: " + file);
+		}
+	}
+	
+	/**
+	 * Writes a book, the entries are sorted by key and of several entries with the same key the first is kept.
+	 * @param file The file to write, an existing file is overwritten.
+	 * @throws IOException If writing fails.
+	 */
+	public static void write(Path file, Collection<Entry> entries) throws IOException {
+		List<Entry> sorted = new ArrayList<>(entries);
+		sorted.sort(Comparator.comparingLong(Entry::key));
+		
+		List<Entry> unique = new ArrayList<>(sorted.size());
+		for (Entry entry : sorted) {
+			if (unique.isEmpty() || unique.get(unique.size() - 1).key() != entry.key()) {
+				unique.add(entry);
+			}
+		}
+		
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeInt(unique.size());
+			for (Entry entry : unique) {
+				out.writeLong(entry.key());
+				out.writeByte(entry.move());
+				out.writeByte(Math.max(-1, Math.min(entry.depth(), Byte.MAX_VALUE)));
+				out.writeShort(Math.max(Short.MIN_VALUE, Math.min(entry.score(), Short.MAX_VALUE)));
+			}
+		}
+	}
+	
+	public Path getFile() {
+		return file;
+	}
+	
+	/**
+	 * @return The number of positions in the book.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Looks up the book move of a position.
+	 * @return The move in the orientation of the given board, -1 if the position is not in the book.
+	 */
+	public int getMove(UltimateBoard ultimateBoard) {
+		Entry entry = lookup(ultimateBoard);
+		return entry == null ? -1 : entry.move();
+	}
+	
+	/**
+	 * Looks up a position with a single search.
+	 * @return The entry with the move transformed to the orientation of the given board,
+	 * null if the position is not in the book.
+	 */
+	public Entry lookup(UltimateBoard ultimateBoard) {
+		int symmetry = ultimateBoard.getCanonicalSymmetry();
+		long key = ultimateBoard.getSymmetricHash(symmetry);
+		int index = find(key);
+		if (index == -1) {
+			return null;
+		}
+		
+		int position = position(index);
+		int move = UltimateBoard.transformMove(UltimateBoard.inverseSymmetry(symmetry), buffer.get(position + 8));
+		
+		// A hash collision with a position outside the book could suggest an illegal move
+		long possible = move < UltimateBoard.HIGH_OFFSET
+				? ultimateBoard.getPossibleMovesLow() >>> move
+				: ultimateBoard.getPossibleMovesHigh() >>> (move - UltimateBoard.HIGH_OFFSET);
+		if ((possible & 1) == 0) {
+			return null;
+		}
+		return new Entry(key, move, buffer.get(position + 9), buffer.getShort(position + 10));
+	}
+	
+	/**
+	 * Looks up a position by its canonical hash.
+	 * @return The entry or null if the position is not in the book.
+	 */
+	public Entry getEntry(long key) {
+		int index = find(key);
+		if (index == -1) {
+			return null;
+		}
+		int position = position(index);
+		return new Entry(key, buffer.get(position + 8), buffer.get(position + 9), buffer.getShort(position + 10));
+	}
+	
+	/**
+	 * Binary search over the mapped entries.
+	 * @return The index of the entry or -1.
+	 */
+	private int find(long key) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long middleKey = buffer.getLong(position(middle));
+			if (middleKey < key) {
+				low = middle + 1;
+			} else if (middleKey > key) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+	
+	private static int position(int index) {
+		return HEADER_SIZE + index * ENTRY_SIZE;
+	}
+}
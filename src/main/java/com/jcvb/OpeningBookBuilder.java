@@ -0,0 +1,127 @@
+package com.jcvb;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Builds an {@link OpeningBook} offline by searching the first plies of the game with a strong, slow player. <p>
+ * The book is built for both colors: the side the book plays for gets its best move, the other side may
+ * answer with any move, so the positions of a color are the ones reachable if that color follows the book.
+ * Symmetric positions are searched only once.
+ */
+public class OpeningBookBuilder {
+	
+	private final Function<GameStatus, Player> engine;
+	private final int plies;
+	private final Map<Long, OpeningBook.Entry> entries = new HashMap<>();
+	private boolean quiet;
+	
+	/**
+	 * @param engine Creates the player which searches the book moves for the given color, e.g. a deep MiniMax.
+	 *               Each color gets one player for the whole book, so it can keep its transposition table.
+	 * @param plies The positions with fewer moves than this get book moves.
+	 */
+	public OpeningBookBuilder(Function<GameStatus, Player> engine, int plies) {
+		this.engine = engine;
+		this.plies = plies;
+	}
+	
+	public void setQuiet(boolean quiet) {
+		this.quiet = quiet;
+	}
+	
+	/**
+	 * Searches all book positions, positions searched before are kept.
+	 * @return The entries of the book by their key.
+	 */
+	public Map<Long, OpeningBook.Entry> build() {
+		for (GameStatus side : new GameStatus[]{GameStatus.ONE, GameStatus.TWO}) {
+			Player player = engine.apply(side);
+			player.setQuiet(true);
+			
+			List<UltimateBoard> level = List.of(new UltimateBoard());
+			int[] moves = new int[81];
+			for (int ply = 0; ply < plies && !level.isEmpty(); ply++) {
+				Map<Long, UltimateBoard> next = new LinkedHashMap<>();
+				
+				for (UltimateBoard ultimateBoard : level) {
+					if (ultimateBoard.isGameOver()) {
+						continue;
+					}
+					
+					if (ultimateBoard.getCurrentPlayer() == side) {
+						OpeningBook.Entry entry = entries.computeIfAbsent(ultimateBoard.getCanonicalHash(), key -> search(player, ultimateBoard));
+						int symmetry = ultimateBoard.getCanonicalSymmetry();
+						add(next, ultimateBoard, UltimateBoard.transformMove(UltimateBoard.inverseSymmetry(symmetry), entry.move()));
+					} else {
+						int count = ultimateBoard.getDistinctMoves(moves);
+						for (int i = 0; i < count; i++) {
+							add(next, ultimateBoard, moves[i]);
+						}
+					}
+				}
+				
+				if (!quiet) System.out.println("Player " + side + ", ply " + ply + ": " + level.size() + " positions, " + entries.size() + " book entries");
+				level = new ArrayList<>(next.values());
+			}
+		}
+		return entries;
+	}
+	
+	/**
+	 * Builds the book and writes it.
+	 * @return The number of positions in the book.
+	 * @throws IOException If writing fails.
+	 */
+	public int build(Path file) throws IOException {
+		build();
+		OpeningBook.write(file, entries.values());
+		return entries.size();
+	}
+	
+	private static void add(Map<Long, UltimateBoard> positions, UltimateBoard ultimateBoard, int move) {
+		UltimateBoard child = ultimateBoard.deepClone();
+		child.makeMove(move);
+		positions.putIfAbsent(child.getCanonicalHash(), child);
+	}
+	
+	/**
+	 * Lets the player move on a copy of the position.
+	 * @return The entry with the move in canonical orientation.
+	 */
+	private static OpeningBook.Entry search(Player player, UltimateBoard ultimateBoard) {
+		UltimateBoard copy = ultimateBoard.deepClone();
+		player.play(copy);
+		SearchInfo info = player.getSearchInfo();
+		
+		int symmetry = ultimateBoard.getCanonicalSymmetry();
+		return new OpeningBook.Entry(ultimateBoard.getSymmetricHash(symmetry), UltimateBoard.transformMove(symmetry, copy.getLastMove()), info.depth(), info.score());
+	}
+	
+	/**
+	 * Usage: OpeningBookBuilder &lt;file&gt; &lt;plies&gt; minimax &lt;depth&gt; | mcts &lt;ms per move&gt;
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 4 || !(args[2].equals("minimax") || args[2].equals("mcts"))) {
+			System.err.println("Usage: OpeningBookBuilder <file> <plies> minimax <depth> | mcts <ms per move>");
+			return;
+		}
+		
+		int plies = Integer.parseInt(args[1]);
+		int value = Integer.parseInt(args[3]);
+		int threads = Runtime.getRuntime().availableProcessors();
+		Function<GameStatus, Player> engine = args[2].equals("minimax")
+				? player -> new MiniMax(new CustomHeuristic(), value, 0, threads)
+				: player -> new MonteCarloTreeSearchMultithreaded(player, value, threads);
+		
+		long start = System.nanoTime();
+		int count = new OpeningBookBuilder(engine, plies).build(Path.of(args[0]));
+		System.out.println("Wrote " + count + " positions in " + (System.nanoTime() - start) / 1_000_000_000 + " s");
+	}
+}
@@ -0,0 +1,168 @@
+package com.jcvb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts the positions reachable from a board in a given number of moves (perft). <p>
+ * The counts only depend on the rules, so they serve as regression oracle for any change of the
+ * move generation or the board representation, and the runtime measures the raw generator speed. <p>
+ * Finished games are not expanded further.
+ */
+public class Perft {
+	
+	private Perft() {
+	}
+	
+	/**
+	 * Counts the leaves of the game tree.
+	 * @param ultimateBoard The position to start from, unchanged afterwards.
+	 * @param depth The number of moves to look ahead.
+	 * @return The number of positions reached after exactly depth moves.
+	 */
+	public static long perft(UltimateBoard ultimateBoard, int depth) {
+		return perft(ultimateBoard, depth, new int[Math.max(depth, 1)][81]);
+	}
+	
+	/**
+	 * @param buffers One move buffer per remaining depth, so the recursion doesn't allocate.
+	 */
+	private static long perft(UltimateBoard ultimateBoard, int depth, int[][] buffers) {
+		if (depth == 0) {
+			return 1;
+		}
+		if (ultimateBoard.isGameOver()) {
+			return 0;
+		}
+		
+		// Bulk counting, the moves of the last ply don't have to be made
+		if (depth == 1) {
+			return Long.bitCount(ultimateBoard.getPossibleMovesLow()) + Long.bitCount(ultimateBoard.getPossibleMovesHigh());
+		}
+		
+		int[] moves = buffers[depth - 1];
+		int count = ultimateBoard.getPossibleMoves(moves);
+		long nodes = 0;
+		
+		for (int i = 0; i < count; i++) {
+			ultimateBoard.makeLeanMove(moves[i]);
+			nodes += perft(ultimateBoard, depth - 1, buffers);
+			ultimateBoard.unmakeLeanMove();
+		}
+		return nodes;
+	}
+	
+	/**
+	 * Counts the leaves below every possible move.
+	 * @param ultimateBoard The position to start from, unchanged afterwards.
+	 * @param depth The number of moves to look ahead, including the root move.
+	 * @param threads The number of threads the root moves are distributed to.
+	 * @return The leaf count indexed by root move, 0 for impossible moves.
+	 */
+	public static long[] divide(UltimateBoard ultimateBoard, int depth, int threads) {
+		long[] nodes = new long[81];
+		if (depth == 0 || ultimateBoard.isGameOver()) {
+			return nodes;
+		}
+		
+		int[] moves = new int[81];
+		int count = ultimateBoard.getPossibleMoves(moves);
+		
+		if (threads <= 1) {
+			UltimateBoard copy = ultimateBoard.deepClone();
+			for (int i = 0; i < count; i++) {
+				copy.makeLeanMove(moves[i]);
+				nodes[moves[i]] = perft(copy, depth - 1);
+				copy.unmakeLeanMove();
+			}
+			return nodes;
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Long>> futures = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				UltimateBoard copy = ultimateBoard.deepClone();
+				copy.makeLeanMove(moves[i]);
+				futures.add(executor.submit(() -> perft(copy, depth - 1)));
+			}
+			
+			for (int i = 0; i < count; i++) {
+				nodes[moves[i]] = futures.get(i).get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Perft was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Perft failed", e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+		return nodes;
+	}
+	
+	/**
+	 * Creates a position from a list of move indices.
+	 * @param moves The moves played from the empty board, separated by spaces or commas. May be empty.
+	 * @return The position after the moves.
+	 * @throws IllegalArgumentException If a move is not possible.
+	 */
+	public static UltimateBoard parsePosition(String moves) {
+		UltimateBoard ultimateBoard = new UltimateBoard();
+		int[] possible = new int[81];
+		
+		for (String token : moves.trim().split("[\\s,]+")) {
+			if (token.isEmpty()) {
+				continue;
+			}
+			
+			int move = Integer.parseInt(token);
+			int count = ultimateBoard.isGameOver() ? 0 : ultimateBoard.getPossibleMoves(possible);
+			boolean legal = false;
+			for (int i = 0; i < count; i++) {
+				legal |= possible[i] == move;
+			}
+			
+			if (!legal) {
+				throw new IllegalArgumentException("Move " + move + " is not possible after " + ultimateBoard.getPly() + " moves");
+			}
+			ultimateBoard.makeMove(move);
+		}
+		return ultimateBoard;
+	}
+	
+	/**
+	 * Usage: Perft &lt;depth&gt; ["moves"] [threads] <p>
+	 * Prints the leaf count of every root move, the total and the speed.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: Perft <depth> [\"moves\"] [threads]");
+			return;
+		}
+		
+		int depth = Integer.parseInt(args[0]);
+		UltimateBoard ultimateBoard = parsePosition(args.length > 1 ? args[1] : "");
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		
+		System.out.println(ultimateBoard);
+		
+		long start = System.nanoTime();
+		long[] nodes = divide(ultimateBoard, depth, threads);
+		long nanos = System.nanoTime() - start;
+		
+		int[] moves = new int[81];
+		int count = ultimateBoard.isGameOver() ? 0 : ultimateBoard.getPossibleMoves(moves);
+		long total = 0;
+		for (int i = 0; i < count; i++) {
+			System.out.println(moves[i] + ": " + nodes[moves[i]]);
+			total += nodes[moves[i]];
+		}
+		
+		System.out.println("Depth " + depth + ": " + total + " nodes in " + nanos / 1_000_000 + " ms (" + (nanos == 0 ? 0 : total * 1_000_000_000L / nanos) + " nodes/s)");
+	}
+}
@@ -5,4 +5,19 @@ public interface Player {
 	public String getName();
 	String getSymbol();
 	String getParam();
+	
+	/**
+	 * Turns off the console output of the player, e.g. for tournaments.
+	 * @param quiet True to print nothing while playing.
+	 */
+	default void setQuiet(boolean quiet) {
+	}
+	
+	/**
+	 * Describes the search behind the last move, {@link Game} asks for it after every move.
+	 * @return The statistics of the last search, {@link SearchInfo#NONE} if the player doesn't search.
+	 */
+	default SearchInfo getSearchInfo() {
+		return SearchInfo.NONE;
+	}
 }
@@ -1,13 +1,9 @@
 package com.jcvb;
 
-import java.util.List;
-
 public class RandomPlayer implements Player {
 	
 	public void play(UltimateBoard ultimateBoard) {
-		List<Integer> moves = ultimateBoard.getPossibleMoves();
-		
-		int move = moves.get((int) (Math.random() * moves.size()));
+		int move = ultimateBoard.getRandomMove(Xoroshiro128.current());
 		
 		ultimateBoard.makeMove(move);
 	}
@@ -0,0 +1,21 @@
+package com.jcvb;
+
+/**
+ * What a player reports about the search behind its last move, see {@link Player#getSearchInfo()}. <p>
+ * Values a player doesn't know are -1, an unknown hit rate is NaN.
+ * @param nodes The nodes searched by MiniMax or the playouts of a Monte Carlo search, counting every rollout
+ *              of a leaf simulated several times.
+ * @param depth The depth of the last completed iteration.
+ * @param ttHitRate The share of transposition table probes which found an entry, between 0 and 1.
+ * @param score The value of the chosen move from the player's point of view. MiniMax reports its heuristic,
+ *              the Monte Carlo searches the average reward of the move in per mille, from -1000 (always lost)
+ *              over 0 (drawn or balanced) to 1000 (always won).
+ * @param treeSize The number of nodes of the search tree after the move.
+ */
+public record SearchInfo(long nodes, int depth, double ttHitRate, int score, int treeSize) {
+	
+	/**
+	 * Reported by players which don't search.
+	 */
+	public static final SearchInfo NONE = new SearchInfo(-1, -1, Double.NaN, -1, -1);
+}
@@ -0,0 +1,231 @@
+package com.jcvb;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Plays many games concurrently on a fixed number of threads and sums up the results. <p>
+ * Players keep state between their moves (search trees, transposition tables), so every game
+ * gets fresh players from the factories of its entrants. <p>
+ * Every game has its own seed, derived from the seed of the tournament and the game number. The players are
+ * created and the game is played with the random generator of the thread seeded with it, so single-threaded
+ * players replay a game exactly given its seed.
+ */
+public class Tournament {
+	
+	/**
+	 * A participant of the tournament.
+	 * @param name The name used in the standings, has to be unique.
+	 * @param factory Creates a new player for the given color.
+	 */
+	public record Entrant(String name, Function<GameStatus, Player> factory) {}
+	
+	/**
+	 * The outcome of a single game.
+	 * @param gameNumber Consecutive over all pairings, in the order the games were added.
+	 * @param one The entrant who played first.
+	 * @param two The entrant who played second.
+	 * @param moves The moves of the game, one byte per move.
+	 * @param telemetry Timing and search statistics of every move.
+	 * @param seed The seed of the game, see {@link Xoroshiro128#seedCurrent(long)}.
+	 */
+	public record Result(int gameNumber, Entrant one, Entrant two, Stats stats, byte[] moves, List<MoveTelemetry> telemetry, long seed) {
+		
+		/**
+		 * @return The winning entrant or null for a draw.
+		 */
+		public Entrant winner() {
+			if (stats.winner() == GameStatus.ONE) return one;
+			if (stats.winner() == GameStatus.TWO) return two;
+			return null;
+		}
+	}
+	
+	private record Pairing(Entrant first, Entrant second, int games, boolean alternateColors) {}
+	
+	private final int threads;
+	private final boolean quiet;
+	private final long seed;
+	private final List<Pairing> pairings = new ArrayList<>();
+	private Consumer<Result> listener = result -> {};
+	
+	/**
+	 * @param threads The number of games played at the same time.
+	 * @param quiet True to suppress the per-move output of the games and players.
+	 */
+	public Tournament(int threads, boolean quiet) {
+		this(threads, quiet, Xoroshiro128.current().nextLong());
+	}
+	
+	/**
+	 * @param seed The seed the seeds of all games are derived from.
+	 */
+	public Tournament(int threads, boolean quiet, long seed) {
+		this.threads = Math.max(threads, 1);
+		this.quiet = quiet;
+		this.seed = seed;
+	}
+	
+	/**
+	 * Adds games between two entrants.
+	 * @param first The entrant who plays first in the first game.
+	 * @param second The entrant who plays second in the first game.
+	 * @param games The number of games.
+	 * @param alternateColors True to swap the colors after every game.
+	 * @return This tournament.
+	 */
+	public Tournament addPairing(Entrant first, Entrant second, int games, boolean alternateColors) {
+		pairings.add(new Pairing(first, second, games, alternateColors));
+		return this;
+	}
+	
+	/**
+	 * Sets a callback for every finished game, e.g. to log it. <p>
+	 * It is called on the thread which called {@link #run()}, in the order the games finish.
+	 */
+	public void setListener(Consumer<Result> listener) {
+		this.listener = listener;
+	}
+	
+	/**
+	 * Plays all games and blocks until they are finished.
+	 * @return The summed up results per entrant.
+	 */
+	public Standings run() {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CompletionService<Result> completionService = new ExecutorCompletionService<>(executor);
+		Standings standings = new Standings();
+		int gameCount = 0;
+		
+		for (Pairing pairing : pairings) {
+			standings.add(pairing.first());
+			standings.add(pairing.second());
+			
+			for (int i = 0; i < pairing.games(); i++) {
+				boolean swap = pairing.alternateColors() && i % 2 == 1;
+				Entrant one = swap ? pairing.second() : pairing.first();
+				Entrant two = swap ? pairing.first() : pairing.second();
+				int gameNumber = gameCount++;
+				completionService.submit(() -> play(gameNumber, one, two));
+			}
+		}
+		
+		try {
+			for (int i = 0; i < gameCount; i++) {
+				Result result = completionService.take().get();
+				standings.record(result);
+				listener.accept(result);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Tournament was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Game failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return standings;
+	}
+	
+	private Result play(int gameNumber, Entrant one, Entrant two) {
+		long gameSeed = Zobrist.mix(seed + gameNumber);
+		Xoroshiro128.seedCurrent(gameSeed);
+		
+		Player playerOne = one.factory().apply(GameStatus.ONE);
+		Player playerTwo = two.factory().apply(GameStatus.TWO);
+		playerOne.setQuiet(quiet);
+		playerTwo.setQuiet(quiet);
+		
+		Game game = new Game(playerOne, playerTwo, quiet);
+		game.run();
+		return new Result(gameNumber, one, two, game.getStats(), game.getMoves(), game.getTelemetry(), gameSeed);
+	}
+	
+	/**
+	 * Wins, draws and losses per entrant, overall and as first player, and the time per move.
+	 */
+	public static class Standings {
+		
+		// wins, draws, losses, games as first player, wins as first player
+		private final Map<String, int[]> scores = new LinkedHashMap<>();
+		private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+		
+		private void add(Entrant entrant) {
+			scores.putIfAbsent(entrant.name(), new int[5]);
+			latencies.putIfAbsent(entrant.name(), new LatencyHistogram());
+		}
+		
+		private void record(Result result) {
+			int[] one = scores.get(result.one().name());
+			int[] two = scores.get(result.two().name());
+			one[3]++;
+			
+			for (MoveTelemetry move : result.telemetry()) {
+				Entrant mover = (move.player() == GameStatus.ONE) ? result.one() : result.two();
+				latencies.get(mover.name()).record(move.nanos());
+			}
+			
+			if (result.stats().winner() == GameStatus.ONE) {
+				one[0]++;
+				one[4]++;
+				two[2]++;
+			} else if (result.stats().winner() == GameStatus.TWO) {
+				two[0]++;
+				one[2]++;
+			} else {
+				one[1]++;
+				two[1]++;
+			}
+		}
+		
+		public int getWins(String name) {
+			return scores.get(name)[0];
+		}
+		
+		public int getDraws(String name) {
+			return scores.get(name)[1];
+		}
+		
+		public int getLosses(String name) {
+			return scores.get(name)[2];
+		}
+		
+		/**
+		 * @return The points of the entrant, 1 per win and 0.5 per draw, divided by its games.
+		 */
+		public double getScore(String name) {
+			int[] score = scores.get(name);
+			int games = score[0] + score[1] + score[2];
+			return games == 0 ? 0 : (score[0] + score[1] * 0.5) / games;
+		}
+		
+		/**
+		 * @return The wall times in nanoseconds of all moves the entrant made.
+		 */
+		public LatencyHistogram getLatencies(String name) {
+			return latencies.get(name);
+		}
+		
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder(String.format("%-40s %6s %6s %6s %7s %12s %10s %10s%n", "Entrant", "Wins", "Draws", "Losses", "Score", "First wins", "p50 ms", "p99 ms"));
+			for (Map.Entry<String, int[]> entry : scores.entrySet()) {
+				int[] score = entry.getValue();
+				LatencyHistogram latency = latencies.get(entry.getKey());
+				sb.append(String.format(Locale.ROOT, "%-40s %6d %6d %6d %6.1f%% %6d/%-5d %10.3f %10.3f%n", entry.getKey(), score[0], score[1], score[2], getScore(entry.getKey()) * 100, score[4], score[3],
+						latency.getPercentile(50) / 1e6, latency.getPercentile(99) / 1e6));
+			}
+			return sb.toString();
+		}
+	}
+}
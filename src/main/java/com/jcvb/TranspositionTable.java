@@ -0,0 +1,108 @@
+package com.jcvb;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size transposition table which can be shared between search threads without locks. <p>
+ * Every entry is packed into a single long. Next to it the table stores the Zobrist hash XORed with
+ * that long, so a torn or concurrently overwritten slot simply fails the verification on probe
+ * (the "lockless hashing" scheme by Hyatt and Mann). <p>
+ * Entry layout: <p>
+ * Bits 0-31: score <p>
+ * Bits 32-39: remaining depth <p>
+ * Bits 40-41: bound type, never 0 for a valid entry <p>
+ * Bits 42-48: best move, 127 if unknown
+ */
+public class TranspositionTable {
+
+	public static final int EXACT = 1;
+	public static final int LOWER = 2;
+	public static final int UPPER = 3;
+
+	private static final int NO_MOVE = 127;
+
+	private final long[] keys;
+	private final long[] entries;
+	private final int mask;
+
+	/**
+	 * Creates an empty table.
+	 * @param size The number of slots, rounded down to a power of two.
+	 */
+	public TranspositionTable(int size) {
+		int slots = Integer.highestOneBit(Math.max(size, 1));
+		this.keys = new long[slots];
+		this.entries = new long[slots];
+		this.mask = slots - 1;
+	}
+
+	/**
+	 * Looks up a position.
+	 * @param hash The Zobrist hash of the position.
+	 * @return The packed entry or 0 if the position is not stored.
+	 */
+	public long probe(long hash) {
+		int index = (int) hash & mask;
+		long entry = entries[index];
+
+		if ((keys[index] ^ entry) != hash) {
+			return 0;
+		}
+		return entry;
+	}
+
+	/**
+	 * Stores a search result. <p>
+	 * An entry of the same position is only replaced by a search of at least the same depth,
+	 * entries of other positions are always replaced.
+	 * @param hash The Zobrist hash of the position.
+	 * @param depth The remaining depth of the search.
+	 * @param bound EXACT, LOWER or UPPER.
+	 * @param score The score of the position.
+	 * @param move The best move or -1 if unknown.
+	 */
+	public void store(long hash, int depth, int bound, int score, int move) {
+		int index = (int) hash & mask;
+		long old = entries[index];
+
+		if ((keys[index] ^ old) == hash && depth(old) > depth) {
+			return;
+		}
+
+		long entry = (score & 0xFFFFFFFFL)
+				| ((long) (depth & 0xFF) << 32)
+				| ((long) bound << 40)
+				| ((long) (move < 0 ? NO_MOVE : move) << 42);
+
+		entries[index] = entry;
+		keys[index] = hash ^ entry;
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0);
+		Arrays.fill(entries, 0);
+	}
+
+	public static int score(long entry) {
+		return (int) entry;
+	}
+
+	public static int depth(long entry) {
+		return (int) (entry >>> 32) & 0xFF;
+	}
+
+	public static int bound(long entry) {
+		return (int) (entry >>> 40) & 0b11;
+	}
+
+	/**
+	 * @return The best move stored with the entry or -1 if unknown.
+	 */
+	public static int move(long entry) {
+		int move = (int) (entry >>> 42) & 0x7F;
+		return move == NO_MOVE ? -1 : move;
+	}
+}
@@ -2,66 +2,349 @@ package com.jcvb;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.random.RandomGenerator;
 
+/**
+ * Represents the 9x9 Ultimate Tic Tac Toe board. <p>
+ * The whole state is packed into a handful of longs so that it can be copied cheaply and
+ * modified in place with {@link #makeMove(int)} and {@link #unmakeMove()}. <p>
+ * Cell layout: <p>
+ * A move index {@code board * 9 + position} (both in human-readable order) is used directly as bit index
+ * into an 81-bit set per player. Bits 0-62 (boards 0-6) live in the low long, bits 63-80 (boards 7-8)
+ * in bits 0-17 of the high long, so no sub-board ever crosses a long boundary.
+ */
 public class UltimateBoard {
-	public Bitboard[] boardArray;
-	private int nextBitBoard;
-	private GameStatus currentPlayer;
-	private GameStatus winner;
-	private GameStatus status;
+	
+	/**
+	 * Mask for the 9 cells of a single sub-board.
+	 */
+	static final int BOARD_MASK = 0b111111111;
+	
+	/**
+	 * Index of the first move stored in the high long.
+	 */
+	static final int HIGH_OFFSET = 63;
+	
+	// Layout of the meta long
+	private static final int WON_ONE_SHIFT = 0;
+	private static final int WON_TWO_SHIFT = 9;
+	private static final int DRAWN_SHIFT = 18;
+	private static final int FORCED_SHIFT = 27;
+	private static final int SIDE_SHIFT = 31;
+	private static final int LAST_MOVE_SHIFT = 32;
+	private static final int RESULT_SHIFT = 39;
+	
+	private static final long FORCED_ANY = 0xF;
+	private static final long NO_MOVE = 0x7F;
+	private static final long RESULT_MASK = 0b11;
+	
+	/**
+	 * Cached copy of {@link GameStatus#values()}, which allocates a new array on every call.
+	 */
+	private static final GameStatus[] STATUSES = GameStatus.values();
+	
+	/**
+	 * The cells of all boards contained in a 9-bit board mask, split into the low and the high long.
+	 */
+	private static final long[] REGIONS_LOW = new long[512];
+	private static final long[] REGIONS_HIGH = new long[512];
+	
+	/**
+	 * The move a move becomes under each of the 8 symmetries of {@link Bitboard}. A symmetry of the whole
+	 * position applies the same permutation to the macro grid and to every sub-board, so the board a move
+	 * sends to is transformed along with it.
+	 */
+	private static final byte[][] MOVE_SYMMETRIES = new byte[8][81];
+	
+	/**
+	 * The symmetry which undoes each symmetry.
+	 */
+	private static final int[] INVERSE_SYMMETRIES = new int[8];
+	
+	/**
+	 * The Zobrist keys of the cells and of the forced board as seen through each symmetry,
+	 * indexed like {@link Zobrist#CELLS} and {@link Zobrist#FORCED}.
+	 */
+	private static final long[][] CELL_KEYS = new long[8][2 * 81];
+	private static final long[][] FORCED_KEYS = new long[8][10];
+	
+	static {
+		for (int boards = 0; boards < 512; boards++) {
+			for (int board = 0; board < 9; board++) {
+				if ((boards & (1 << board)) == 0) {
+					continue;
+				}
+				
+				if (board < 7) {
+					REGIONS_LOW[boards] |= (long) BOARD_MASK << (board * 9);
+				} else {
+					REGIONS_HIGH[boards] |= (long) BOARD_MASK << ((board - 7) * 9);
+				}
+			}
+		}
+		
+		for (int s = 0; s < 8; s++) {
+			int[] permutation = Bitboard.PERMUTATIONS[s];
+			
+			for (int move = 0; move < 81; move++) {
+				int transformed = permutation[move / 9] * 9 + permutation[move % 9];
+				MOVE_SYMMETRIES[s][move] = (byte) transformed;
+				CELL_KEYS[s][move] = Zobrist.CELLS[transformed];
+				CELL_KEYS[s][81 + move] = Zobrist.CELLS[81 + transformed];
+			}
+			for (int board = 0; board < 9; board++) {
+				FORCED_KEYS[s][board] = Zobrist.FORCED[permutation[board]];
+			}
+			FORCED_KEYS[s][9] = Zobrist.FORCED[9];
+			
+			for (int inverse = 0; inverse < 8; inverse++) {
+				if (Bitboard.PERMUTATIONS[inverse][permutation[1]] == 1 && Bitboard.PERMUTATIONS[inverse][permutation[3]] == 3) {
+					INVERSE_SYMMETRIES[s] = inverse;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * The cells of both players. <p>
+	 * Index {@code player * 2} holds the low long, {@code player * 2 + 1} the high long.
+	 */
+	private final long[] cells = new long[4];
+	
+	/**
+	 * Everything besides the cells: <p>
+	 * Bits 0-8: boards won by player one <p>
+	 * Bits 9-17: boards won by player two <p>
+	 * Bits 18-26: drawn boards <p>
+	 * Bits 27-30: the board the next move is forced to, 15 if the player may choose freely <p>
+	 * Bit 31: the player to move <p>
+	 * Bits 32-38: the last move, 127 if no move has been made yet <p>
+	 * Bits 39-40: the result of the whole game as ordinal of {@link GameStatus}
+	 */
+	private long meta;
+	
+	/**
+	 * The meta long before each move, used to undo moves without recomputation.
+	 * A board can hold at most 81 moves.
+	 */
+	private final long[] history = new long[81];
+	
+	/**
+	 * The number of moves made on this board.
+	 */
+	private int ply;
+	
+	/**
+	 * The Zobrist hash of the position, updated incrementally.
+	 * @see Zobrist
+	 */
+	private long hash;
+	
+	/**
+	 * The Zobrist hashes of the position transformed by each of the 8 symmetries, index 0 equals {@link #hash}.
+	 * Updated with every move like the hash itself, so the canonical hash is the smallest of eight longs.
+	 */
+	private final long[] symmetricHashes = new long[8];
+	
+	/**
+	 * The sub-board terms of {@link CustomHeuristic} summed over all sub-boards, for player one in the low
+	 * and for player two in the high 32 bits. A move only changes the terms of its own sub-board.
+	 */
+	private long boardScores;
+	
+	/**
+	 * The board scores before each move, restored by {@link #unmakeMove()}.
+	 */
+	private final long[] boardScoreHistory = new long[81];
 	
 	public UltimateBoard() {
-		boardArray = new Bitboard[9];
-		for(int i = 0; i < 9; i++) {
-				boardArray[i] = new Bitboard(i);
+		meta = (FORCED_ANY << FORCED_SHIFT) | (NO_MOVE << LAST_MOVE_SHIFT) | ((long) GameStatus.RUNNING.ordinal() << RESULT_SHIFT);
+		hash = forcedKey(meta);
+		for (int s = 0; s < 8; s++) {
+			symmetricHashes[s] = FORCED_KEYS[s][9];
 		}
-		nextBitBoard = -1;
-		currentPlayer = GameStatus.ONE;
 	}
 	
-	private UltimateBoard(Bitboard[] boardArray, int nextBitBoard, GameStatus nextPlayer) {
-		this.boardArray = boardArray;
-		this.nextBitBoard = nextBitBoard;
-		this.currentPlayer = nextPlayer;
+	/**
+	 * Clones an existing UltimateBoard, including its move history.
+	 * @param parent The UltimateBoard to clone.
+	 */
+	private UltimateBoard(UltimateBoard parent) {
+		System.arraycopy(parent.cells, 0, cells, 0, cells.length);
+		System.arraycopy(parent.history, 0, history, 0, parent.ply);
+		System.arraycopy(parent.boardScoreHistory, 0, boardScoreHistory, 0, parent.ply);
+		meta = parent.meta;
+		ply = parent.ply;
+		hash = parent.hash;
+		System.arraycopy(parent.symmetricHashes, 0, symmetricHashes, 0, symmetricHashes.length);
+		boardScores = parent.boardScores;
 	}
 	
+	/**
+	 * Returns a snapshot of a single sub-board. <p>
+	 * The returned Bitboard is a copy, changes to it don't affect this board.
+	 * @param index The index of the sub-board.
+	 * @return The sub-board or null if the index is out of bounds.
+	 */
 	public Bitboard getBoard(int index) {
 		if(index < 0 || index > 8) {
 			System.err.println("Board Index" + index +" out of Bounds");
 			return null;
 		} else {
-			return boardArray[index];
+			return new Bitboard(index, getCells(0, index), getCells(1, index));
+		}
+	}
+	
+	/**
+	 * Returns the cells a player has marked on a sub-board.
+	 * @param player The player number (0 or 1).
+	 * @param board The index of the sub-board.
+	 * @return A 9-bit mask in human-readable order.
+	 */
+	public int getCells(int player, int board) {
+		if (board < 7) {
+			return (int) (cells[player << 1] >>> (board * 9)) & BOARD_MASK;
+		}
+		return (int) (cells[(player << 1) | 1] >>> ((board - 7) * 9)) & BOARD_MASK;
+	}
+	
+	/**
+	 * Returns the status of a sub-board.
+	 * @param board The index of the sub-board.
+	 * @return The status of the sub-board.
+	 */
+	public GameStatus getBoardStatus(int board) {
+		if ((meta >>> (WON_ONE_SHIFT + board) & 1) != 0) {
+			return GameStatus.ONE;
+		} else if ((meta >>> (WON_TWO_SHIFT + board) & 1) != 0) {
+			return GameStatus.TWO;
+		} else if ((meta >>> (DRAWN_SHIFT + board) & 1) != 0) {
+			return GameStatus.DRAW;
 		}
+		return GameStatus.RUNNING;
+	}
+	
+	/**
+	 * Returns the sub-boards which are no longer running.
+	 * @return A 9-bit mask of all won or drawn sub-boards.
+	 */
+	public int getDecidedBoards() {
+		return (int) ((meta >>> WON_ONE_SHIFT) | (meta >>> WON_TWO_SHIFT) | (meta >>> DRAWN_SHIFT)) & BOARD_MASK;
 	}
 	
 	/**
 	 * Returns a list of the possible moves for all Boards contained in the Ultimate-Board.
 	 * Only returns the possible moves for the next Board, if the next Board is still running.
+	 * A finished game has no possible moves.
 	 * @return The List of all possible moves
+	 * @see #getPossibleMoves(int[])
 	 */
 	public List<Integer> getPossibleMoves() {
-		ArrayList<Integer> possibleMoves = new ArrayList<>();
-		
-		if(nextBitBoard != -1) {
-			// BitBoard abrufen und prüfen, ob es noch mögliche Züge gibt
-			Bitboard lastBoard = getBoard(nextBitBoard);
-			GameStatus lastGameStatus = lastBoard.checkIfWon();
-			if (lastGameStatus == GameStatus.RUNNING) {
-				lastBoard.getPossibleMoves(possibleMoves);
-				return possibleMoves;
-			}
-		}
+		int[] buffer = new int[81];
+		int count = getPossibleMoves(buffer);
+		ArrayList<Integer> possibleMoves = new ArrayList<>(count);
 		
-		// Falls nicht, dann alle Boards durchgehen und prüfen, ob es noch mögliche Züge gibt
-		for (int i = 0; i < 9; i++) {
-			GameStatus status = boardArray[i].checkIfWon();
-			if (status == GameStatus.RUNNING) {
-				getBoard(i).getPossibleMoves(possibleMoves);
-			}
+		for (int i = 0; i < count; i++) {
+			possibleMoves.add(buffer[i]);
 		}
 		return possibleMoves;
 	}
 	
+	/**
+	 * Writes the possible moves into the given buffer without allocating.
+	 * @param buffer The buffer to fill, needs room for 81 moves.
+	 * @return The number of moves written.
+	 */
+	public int getPossibleMoves(int[] buffer) {
+		int count = 0;
+		
+		for (long low = getPossibleMovesLow(); low != 0; low &= low - 1) {
+			buffer[count++] = Long.numberOfTrailingZeros(low);
+		}
+		for (long high = getPossibleMovesHigh(); high != 0; high &= high - 1) {
+			buffer[count++] = Long.numberOfTrailingZeros(high) + HIGH_OFFSET;
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns the possible moves 0-62 as a bit mask, bit i stands for move i.
+	 * @return The low half of the 81-bit move mask.
+	 */
+	public long getPossibleMovesLow() {
+		return ~(cells[0] | cells[2]) & REGIONS_LOW[getPlayableBoards()];
+	}
+	
+	/**
+	 * Returns the possible moves 63-80 as a bit mask, bit i stands for move i + 63.
+	 * @return The high half of the 81-bit move mask.
+	 */
+	public long getPossibleMovesHigh() {
+		return ~(cells[1] | cells[3]) & REGIONS_HIGH[getPlayableBoards()];
+	}
+	
+	/**
+	 * Returns the boards the next move may be made on, none once the game is over.
+	 * @return A 9-bit mask of the boards.
+	 */
+	private int getPlayableBoards() {
+		if (isGameOver()) {
+			return 0;
+		}
+		int running = ~getDecidedBoards() & BOARD_MASK;
+		int forced = getNextBitBoard();
+		
+		if (forced != -1 && (running & (1 << forced)) != 0) {
+			return 1 << forced;
+		}
+		return running;
+	}
+	
+	/**
+	 * Picks one of the possible moves uniformly at random without allocating.
+	 * @param random The source of randomness.
+	 * @return The chosen move or -1 if there is no possible move.
+	 */
+	public int getRandomMove(RandomGenerator random) {
+		long low = getPossibleMovesLow();
+		long high = getPossibleMovesHigh();
+		int lowCount = Long.bitCount(low);
+		int count = lowCount + Long.bitCount(high);
+		
+		if (count == 0) {
+			return -1;
+		}
+		
+		int n = random.nextInt(count);
+		if (n < lowCount) {
+			return selectBit(low, n);
+		}
+		return selectBit(high, n - lowCount) + HIGH_OFFSET;
+	}
+	
+	/**
+	 * Returns the index of the n-th set bit of a long. <p>
+	 * Skips whole bytes by their popcount before clearing the remaining lower bits.
+	 * @param x The long to search, needs more than n set bits.
+	 * @param n The zero-based rank of the bit.
+	 * @return The index of the bit.
+	 */
+	static int selectBit(long x, int n) {
+		int shift = 0;
+		int count;
+		
+		while ((count = Long.bitCount((x >>> shift) & 0xFF)) <= n) {
+			n -= count;
+			shift += 8;
+		}
+		
+		long rest = x >>> shift;
+		for (int i = 0; i < n; i++) {
+			rest &= rest - 1;
+		}
+		return Long.numberOfTrailingZeros(rest) + shift;
+	}
+	
 	/**
 	 * Method to make a move on the Ultimate TTT Board
 	 * @param index index of the move
@@ -69,79 +352,289 @@ public class UltimateBoard {
 	public void makeMove(int index) {
 		int boardIndex = index / 9;
 		int posIndex = index % 9;
-		nextBitBoard = posIndex;
+		int player = (int) (meta >>> SIDE_SHIFT) & 1;
+		
+		boardScoreHistory[ply] = boardScores;
+		makeLeanMove(index);
+		
+		int one = getCells(0, boardIndex);
+		int two = getCells(1, boardIndex);
+		updateBoardScores(one, two, player == 0 ? one & ~(1 << posIndex) : one, player == 1 ? two & ~(1 << posIndex) : two);
+		updateSymmetricHashes(player * 81 + index, history[ply - 1], meta);
+	}
+	
+	/**
+	 * Makes a move without updating the board scores and the symmetric hashes, which cost more than the move itself. <p>
+	 * For searches that only need the moves, the result and {@link #getHash()}, like perft and the MCTS descent.
+	 * The move has to be reverted with {@link #unmakeLeanMove()}, until then {@link #getBoardScore(int)} and
+	 * everything built on the symmetric hashes describe the position before the first lean move.
+	 * @param index index of the move
+	 */
+	void makeLeanMove(int index) {
+		int boardIndex = index / 9;
+		int posIndex = index % 9;
+		int player = (int) (meta >>> SIDE_SHIFT) & 1;
+		
+		history[ply++] = meta;
+		
+		if (index < HIGH_OFFSET) {
+			cells[player << 1] |= 1L << index;
+		} else {
+			cells[(player << 1) | 1] |= 1L << (index - HIGH_OFFSET);
+		}
 		
-		boardArray[boardIndex].set(posIndex, currentPlayer.playerNumber());
+		// check if the move has decided the board
+		long status = meta & ~((1L << (WON_ONE_SHIFT + boardIndex)) | (1L << (WON_TWO_SHIFT + boardIndex)) | (1L << (DRAWN_SHIFT + boardIndex)));
+		int one = getCells(0, boardIndex);
+		int two = getCells(1, boardIndex);
 		
-		// check if the last move has won the board
-		GameStatus gameStatus = boardArray[boardIndex].checkIfWon();
+		if (Bitboard.WINS[one]) {
+			status |= 1L << (WON_ONE_SHIFT + boardIndex);
+		} else if (Bitboard.WINS[two]) {
+			status |= 1L << (WON_TWO_SHIFT + boardIndex);
+		} else if ((one | two) == BOARD_MASK) {
+			status |= 1L << (DRAWN_SHIFT + boardIndex);
+		}
 		
-		currentPlayer = currentPlayer.next();
+		// The opponent may choose freely if the board he is sent to is already decided
+		long forced = (status >>> (WON_ONE_SHIFT + posIndex) | status >>> (WON_TWO_SHIFT + posIndex) | status >>> (DRAWN_SHIFT + posIndex)) & 1;
+		if (forced != 0) {
+			forced = FORCED_ANY;
+		} else {
+			forced = posIndex;
+		}
+		
+		// The result of the game can only change if the status of a board has changed,
+		// once decided it stays, even if moves are made after the end of the game
+		long result = (meta >>> RESULT_SHIFT) & RESULT_MASK;
+		if (result == GameStatus.RUNNING.ordinal() && ((status ^ meta) & ((1L << FORCED_SHIFT) - 1)) != 0) {
+			result = computeResult(status).ordinal();
+		}
+		
+		meta = (status & ((1L << FORCED_SHIFT) - 1))
+				| (forced << FORCED_SHIFT)
+				| ((long) (player ^ 1) << SIDE_SHIFT)
+				| ((long) index << LAST_MOVE_SHIFT)
+				| (result << RESULT_SHIFT);
+		
+		hash ^= Zobrist.CELLS[player * 81 + index] ^ Zobrist.SIDE ^ forcedKey(history[ply - 1]) ^ forcedKey(meta);
 	}
 	
 	/**
-	 * Method checks if a player has won the Ultimate TTT Game
-	 * @param player player who played last
-	 * @return GameStatus.Player, if he has 3 winning boards in a row - null if he hasn't won - GameStatus.DRAW if game is draw
+	 * Adds or removes a cell and swaps the forced board in all symmetric hashes, XOR makes both the same.
+	 * @param cell The index into {@link Zobrist#CELLS}.
 	 */
-	public GameStatus checkGameWon(GameStatus player) {
-		// horizontal checks
-		for (int i = 0; i < 9; i=i+3) {
-			if ((boardArray[i].getGameStatus() == player) && (boardArray[i+1].getGameStatus() == player) && (boardArray[i+2].getGameStatus() == player)) {
-				return player;
-			}
+	private void updateSymmetricHashes(int cell, long before, long after) {
+		int forcedBefore = forcedIndex(before);
+		int forcedAfter = forcedIndex(after);
+		for (int s = 0; s < 8; s++) {
+			symmetricHashes[s] ^= CELL_KEYS[s][cell] ^ Zobrist.SIDE ^ FORCED_KEYS[s][forcedBefore] ^ FORCED_KEYS[s][forcedAfter];
+		}
+	}
+	
+	/**
+	 * Replaces the terms of a sub-board in the board scores.
+	 * @param one The cells of player one after the move.
+	 * @param two The cells of player two after the move.
+	 * @param oneBefore The cells of player one before the move.
+	 * @param twoBefore The cells of player two before the move.
+	 */
+	private void updateBoardScores(int one, int two, int oneBefore, int twoBefore) {
+		int scoreOne = (int) boardScores + CustomHeuristic.boardScore(one, two) - CustomHeuristic.boardScore(oneBefore, twoBefore);
+		int scoreTwo = (int) (boardScores >>> 32) + CustomHeuristic.boardScore(two, one) - CustomHeuristic.boardScore(twoBefore, oneBefore);
+		boardScores = (scoreOne & 0xFFFFFFFFL) | ((long) scoreTwo << 32);
+	}
+	
+	/**
+	 * Returns the sum of the sub-board terms of {@link CustomHeuristic}, kept up to date by every move.
+	 * @param player The player whose view is scored (0 or 1).
+	 * @return The summed terms of all nine sub-boards.
+	 */
+	public int getBoardScore(int player) {
+		return (int) (boardScores >>> (player << 5));
+	}
+	
+	/**
+	 * Reverts the last move made with {@link #makeMove(int)}.
+	 */
+	public void unmakeMove() {
+		if (ply == 0) {
+			System.err.println("No move to unmake");
+			return;
+		}
+		
+		long previous = history[ply - 1];
+		int player = (int) (previous >>> SIDE_SHIFT) & 1;
+		updateSymmetricHashes(player * 81 + getLastMove(), previous, meta);
+		boardScores = boardScoreHistory[ply - 1];
+		unmakeLeanMove();
+	}
+	
+	/**
+	 * Reverts the last move made with {@link #makeLeanMove(int)}.
+	 */
+	void unmakeLeanMove() {
+		if (ply == 0) {
+			System.err.println("No move to unmake");
+			return;
+		}
+		
+		int index = getLastMove();
+		long previous = history[--ply];
+		int player = (int) (previous >>> SIDE_SHIFT) & 1;
+		
+		hash ^= Zobrist.CELLS[player * 81 + index] ^ Zobrist.SIDE ^ forcedKey(meta) ^ forcedKey(previous);
+		meta = previous;
+		
+		if (index < HIGH_OFFSET) {
+			cells[player << 1] &= ~(1L << index);
+		} else {
+			cells[(player << 1) | 1] &= ~(1L << (index - HIGH_OFFSET));
+		}
+	}
+	
+	/**
+	 * Plays the game to its end with uniformly random moves (the rollout of a Monte Carlo search). <p>
+	 * Works on local copies of the packed state, so this board is left unchanged and nothing is allocated.
+	 * History, last move and hash are not needed for a rollout and are not maintained.
+	 * @param random The source of randomness.
+	 * @return The result of the game, ONE, TWO or DRAW.
+	 */
+	public GameStatus playRandomGame(RandomGenerator random) {
+		GameStatus result = getWinner();
+		if (result != GameStatus.RUNNING) {
+			return result;
 		}
 		
-		// vertical checks
-		int[][] vertical = new int[][]{
-				new int[]{0, 3, 6},
-				new int[]{1, 4, 7},
-				new int[]{2, 5, 8}
-		};
-		for (int i = 0; i < 3; i++) {
-			int[] pos = vertical[i];
+		long oneLow = cells[0];
+		long oneHigh = cells[1];
+		long twoLow = cells[2];
+		long twoHigh = cells[3];
+		int ownBoards = getWonBoards(0);
+		int otherBoards = getWonBoards(1);
+		int decided = getDecidedBoards();
+		int forced = getNextBitBoard();
+		int player = (int) (meta >>> SIDE_SHIFT) & 1;
+		
+		// Boards won by the player to move and by the opponent, swapped after every move
+		if (player == 1) {
+			int swap = ownBoards;
+			ownBoards = otherBoards;
+			otherBoards = swap;
+		}
+		
+		while (true) {
+			int running = ~decided & BOARD_MASK;
+			int playable = (forced != -1 && (running & (1 << forced)) != 0) ? 1 << forced : running;
+			long low = ~(oneLow | twoLow) & REGIONS_LOW[playable];
+			long high = ~(oneHigh | twoHigh) & REGIONS_HIGH[playable];
+			int lowCount = Long.bitCount(low);
+			
+			// A running board always has an empty cell, so there is at least one move
+			int n = random.nextInt(lowCount + Long.bitCount(high));
+			int move = (n < lowCount) ? selectBit(low, n) : selectBit(high, n - lowCount) + HIGH_OFFSET;
+			int board = move / 9;
+			int marked;
+			int empty;
+			
+			if (move < HIGH_OFFSET) {
+				if (player == 0) {
+					oneLow |= 1L << move;
+				} else {
+					twoLow |= 1L << move;
+				}
+				marked = (int) ((player == 0 ? oneLow : twoLow) >>> (board * 9)) & BOARD_MASK;
+				empty = (int) (~(oneLow | twoLow) >>> (board * 9)) & BOARD_MASK;
+			} else {
+				if (player == 0) {
+					oneHigh |= 1L << (move - HIGH_OFFSET);
+				} else {
+					twoHigh |= 1L << (move - HIGH_OFFSET);
+				}
+				marked = (int) ((player == 0 ? oneHigh : twoHigh) >>> ((board - 7) * 9)) & BOARD_MASK;
+				empty = (int) (~(oneHigh | twoHigh) >>> ((board - 7) * 9)) & BOARD_MASK;
+			}
 			
-			if ((boardArray[pos[0]].getGameStatus() == player) && (boardArray[pos[1]].getGameStatus() == player) && (boardArray[pos[2]].getGameStatus() == player)){
-				return player;
+			// Only the player who moved can have won the board
+			if (Bitboard.WINS[marked]) {
+				ownBoards |= 1 << board;
+				decided |= 1 << board;
+				if (Bitboard.WINS[ownBoards]) {
+					return player == 0 ? GameStatus.ONE : GameStatus.TWO;
+				}
+			} else if (empty == 0) {
+				decided |= 1 << board;
 			}
-
+			
+			if (decided == BOARD_MASK) {
+				return GameStatus.DRAW;
+			}
+			
+			forced = move % 9;
+			player ^= 1;
+			int swap = ownBoards;
+			ownBoards = otherBoards;
+			otherBoards = swap;
 		}
-		// diagonal checks
-		if ((boardArray[0].getGameStatus() == player) && (boardArray[4].getGameStatus() == player) && (boardArray[8].getGameStatus() == player)) {
-			return player;
+	}
+	
+	/**
+	 * Computes the result of the game from the board statuses.
+	 * @param status The meta long containing the board statuses.
+	 * @return The winner, DRAW if all boards are decided without a winner, RUNNING otherwise.
+	 */
+	private static GameStatus computeResult(long status) {
+		int wonOne = (int) (status >>> WON_ONE_SHIFT) & BOARD_MASK;
+		int wonTwo = (int) (status >>> WON_TWO_SHIFT) & BOARD_MASK;
+		int drawn = (int) (status >>> DRAWN_SHIFT) & BOARD_MASK;
+		
+		if (Bitboard.WINS[wonOne]) {
+			return GameStatus.ONE;
+		} else if (Bitboard.WINS[wonTwo]) {
+			return GameStatus.TWO;
+		} else if ((wonOne | wonTwo | drawn) == BOARD_MASK) {
+			return GameStatus.DRAW;
 		}
-		if ((boardArray[2].getGameStatus() == player) && (boardArray[4].getGameStatus() == player) && (boardArray[6].getGameStatus() == player)){
+		return GameStatus.RUNNING;
+	}
+	
+	/**
+	 * Returns the boards won by a player.
+	 * @param player The player number (0 or 1).
+	 * @return A 9-bit mask of the won boards.
+	 */
+	public int getWonBoards(int player) {
+		return (int) (meta >>> (player == 0 ? WON_ONE_SHIFT : WON_TWO_SHIFT)) & BOARD_MASK;
+	}
+	
+	/**
+	 * Method checks if a player has won the Ultimate TTT Game
+	 * @param player player who played last
+	 * @return GameStatus.Player, if he has 3 winning boards in a row - GameStatus.DRAW if game is draw - GameStatus.RUNNING otherwise
+	 */
+	public GameStatus checkGameWon(GameStatus player) {
+		if (Bitboard.WINS[getWonBoards(player.playerNumber())]) {
 			return player;
 		}
 		return checkDraw();
 	}
-
-
+	
+	
 	public boolean isGameOver(){
-		return checkGameWon(currentPlayer) != GameStatus.RUNNING;
+		return ((meta >>> RESULT_SHIFT) & RESULT_MASK) != GameStatus.RUNNING.ordinal();
 	}
-
+	
+	/**
+	 * Returns the result of the game, which is kept up to date by {@link #makeMove(int)}.
+	 * @return The winner, DRAW or RUNNING.
+	 */
 	public GameStatus getWinner() {
-		if(checkGameWon(currentPlayer) == currentPlayer){
-			winner = currentPlayer;
-			return currentPlayer;
-		} else if(checkGameWon(currentPlayer.next()) == currentPlayer.next()){
-			winner = currentPlayer.next();
-			return currentPlayer.next();
-		} else if(checkDraw() == GameStatus.DRAW){
-			winner = GameStatus.DRAW;
-			return GameStatus.DRAW;
-		} else {
-			winner = GameStatus.RUNNING;
-			return GameStatus.RUNNING;
-		}
+		return STATUSES[(int) ((meta >>> RESULT_SHIFT) & RESULT_MASK)];
 	}
-
+	
 	private GameStatus checkDraw() {
-		for (int i = 0; i < 9; i++) {
-				if(boardArray[i].getGameStatus() == GameStatus.RUNNING)
-					return GameStatus.RUNNING;
-			
+		if (getDecidedBoards() != BOARD_MASK) {
+			return GameStatus.RUNNING;
 		}
 		return GameStatus.DRAW;
 	}
@@ -170,10 +663,10 @@ public class UltimateBoard {
 		
 		for (int i = 0; i < partialWins.length; i++) {
 			int[] pos = partialWins[i];
-			if ((boardArray[pos[0]].getGameStatus() == player) && (boardArray[pos[1]].getGameStatus() == player))
+			if ((getBoardStatus(pos[0]) == player) && (getBoardStatus(pos[1]) == player))
 				accu++;
 			
-			if ((boardArray[pos[0]].getGameStatus() == player.next()) && (boardArray[pos[1]].getGameStatus() == player.next()))
+			if ((getBoardStatus(pos[0]) == player.next()) && (getBoardStatus(pos[1]) == player.next()))
 				accu--;
 		}
 		
@@ -181,21 +674,167 @@ public class UltimateBoard {
 	}
 	
 	public GameStatus getCurrentPlayer() {
-		return currentPlayer;
+		return ((meta >>> SIDE_SHIFT) & 1) == 0 ? GameStatus.ONE : GameStatus.TWO;
 	}
 	
-	public UltimateBoard deepClone() {
-		Bitboard[] copy = new Bitboard[9];
+	/**
+	 * Returns the last move made on this board.
+	 * @return The index of the last move, -1 if no move has been made yet.
+	 */
+	public int getLastMove() {
+		int move = (int) (meta >>> LAST_MOVE_SHIFT) & (int) NO_MOVE;
+		return move == NO_MOVE ? -1 : move;
+	}
+	
+	/**
+	 * Returns the number of moves made on this board.
+	 * @return The number of moves.
+	 */
+	public int getPly() {
+		return ply;
+	}
+	
+	/**
+	 * Returns all moves made on this board, read back from the move history.
+	 * @return The moves in the order they were made, one byte (0-80) per move.
+	 */
+	public byte[] getMoves() {
+		byte[] moves = new byte[ply];
 		
-		for (int i = 0; i < 9; i++) {
-			copy[i] = boardArray[i].deepClone();
+		// Every meta long holds the move made before it
+		for (int i = 0; i < ply; i++) {
+			long after = (i + 1 < ply) ? history[i + 1] : meta;
+			moves[i] = (byte) ((after >>> LAST_MOVE_SHIFT) & NO_MOVE);
+		}
+		return moves;
+	}
+	
+	/**
+	 * Returns the Zobrist key of the forced board stored in a meta long.
+	 */
+	private static long forcedKey(long meta) {
+		return Zobrist.FORCED[forcedIndex(meta)];
+	}
+	
+	/**
+	 * @return The forced board as index into {@link Zobrist#FORCED}, 9 for a free choice.
+	 */
+	private static int forcedIndex(long meta) {
+		int forced = (int) (meta >>> FORCED_SHIFT) & (int) FORCED_ANY;
+		return forced == FORCED_ANY ? 9 : forced;
+	}
+	
+	/**
+	 * Returns the Zobrist hash of the position. <p>
+	 * Equal positions have equal hashes, independent of the order of the moves leading to them.
+	 * @return The 64-bit hash.
+	 */
+	public long getHash() {
+		return hash;
+	}
+	
+	/**
+	 * Returns the hash of the position transformed by a symmetry, i.e. the hash of the board reached by
+	 * playing every move transformed with {@link #transformMove(int, int)}.
+	 * @param symmetry The symmetry, 0-7 as in {@link Bitboard}.
+	 */
+	public long getSymmetricHash(int symmetry) {
+		return symmetricHashes[symmetry];
+	}
+	
+	/**
+	 * Returns the symmetry which transforms the position into the representative of its symmetry class,
+	 * the transformation with the smallest hash. All 8 transformations of a position share the representative.
+	 * @return The symmetry, the smallest one if several lead to the representative.
+	 */
+	public int getCanonicalSymmetry() {
+		int best = 0;
+		for (int s = 1; s < 8; s++) {
+			if (symmetricHashes[s] < symmetricHashes[best]) {
+				best = s;
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * Returns a hash which is the same for all positions that are symmetric to each other,
+	 * e.g. to share transposition table entries between them.
+	 * @return The hash of the representative of the symmetry class.
+	 */
+	public long getCanonicalHash() {
+		return symmetricHashes[getCanonicalSymmetry()];
+	}
+	
+	/**
+	 * Returns the symmetries which map the position onto itself, at least the identity.
+	 * @return A mask with bit s set if symmetry s leaves the position unchanged.
+	 */
+	public int getSymmetries() {
+		int symmetries = 1;
+		for (int s = 1; s < 8; s++) {
+			if (symmetricHashes[s] == hash) {
+				symmetries |= 1 << s;
+			}
+		}
+		return symmetries;
+	}
+	
+	/**
+	 * Writes one possible move per symmetry class into the buffer. <p>
+	 * If a symmetry maps the position onto itself, it maps every move to one that leads to a symmetric position,
+	 * only the smallest move of each such orbit is kept. Positions without symmetries keep all moves,
+	 * the empty board has 15 distinct moves out of 81.
+	 * @param buffer The buffer to fill, needs room for 81 moves.
+	 * @return The number of moves written.
+	 */
+	public int getDistinctMoves(int[] buffer) {
+		int count = getPossibleMoves(buffer);
+		int symmetries = getSymmetries();
+		if (symmetries == 1) {
+			return count;
 		}
 		
-		return new UltimateBoard(copy, nextBitBoard, currentPlayer);
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			int move = buffer[i];
+			boolean smallest = true;
+			for (int s = 1; s < 8 && smallest; s++) {
+				smallest = (symmetries & (1 << s)) == 0 || MOVE_SYMMETRIES[s][move] >= move;
+			}
+			if (smallest) {
+				buffer[kept++] = move;
+			}
+		}
+		return kept;
+	}
+	
+	/**
+	 * @param symmetry The symmetry, 0-7 as in {@link Bitboard}.
+	 * @return The move transformed by the symmetry.
+	 */
+	public static int transformMove(int symmetry, int move) {
+		return MOVE_SYMMETRIES[symmetry][move];
 	}
 	
+	/**
+	 * @return The symmetry which undoes the given one.
+	 */
+	public static int inverseSymmetry(int symmetry) {
+		return INVERSE_SYMMETRIES[symmetry];
+	}
+	
+	public UltimateBoard deepClone() {
+		return new UltimateBoard(this);
+	}
+	
+	/**
+	 * Returns the board the next move has to be made on.
+	 * @return The index of the board or -1 if the player may choose freely.
+	 */
 	public int getNextBitBoard() {
-		return nextBitBoard;
+		int forced = (int) (meta >>> FORCED_SHIFT) & (int) FORCED_ANY;
+		return forced == FORCED_ANY ? -1 : forced;
 	}
 	
 	@Override
@@ -211,7 +850,6 @@ public class UltimateBoard {
 			for(int horizontalBoard = 0; horizontalBoard < 3; horizontalBoard++){
 				index = boardBase + horizontalBoard;
 				sb.append(getBoard(index).lineToString(verticalLine%3));
-//				getBoard(index).getPossibleMoves();
 				if(horizontalBoard < 2){
 					sb.append("| ");
 				} else {
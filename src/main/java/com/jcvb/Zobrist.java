@@ -0,0 +1,58 @@
+package com.jcvb;
+
+/**
+ * Random keys for Zobrist hashing of an UltimateBoard. <p>
+ * The hash of a position is the XOR of the keys of all marked cells, the key of the forced board
+ * and the side key if player two is to move. As XOR is its own inverse, the hash can be
+ * updated incrementally in makeMove and unmakeMove.
+ */
+public final class Zobrist {
+
+	/**
+	 * One key per player and cell, indexed by {@code player * 81 + move}.
+	 */
+	static final long[] CELLS = new long[2 * 81];
+
+	/**
+	 * One key per forced board, index 9 stands for a free choice.
+	 */
+	static final long[] FORCED = new long[10];
+
+	/**
+	 * Key which is added if player two is to move.
+	 */
+	static final long SIDE;
+
+	static {
+		// Fixed seed, so hashes are reproducible between runs (needed for stored books and records)
+		long state = 0x5DEECE66DL;
+
+		for (int i = 0; i < CELLS.length; i++) {
+			state += 0x9E3779B97F4A7C15L;
+			CELLS[i] = mix(state);
+		}
+
+		for (int i = 0; i < FORCED.length; i++) {
+			state += 0x9E3779B97F4A7C15L;
+			FORCED[i] = mix(state);
+		}
+
+		state += 0x9E3779B97F4A7C15L;
+		SIDE = mix(state);
+	}
+
+	private Zobrist() {
+	}
+
+	/**
+	 * The output function of SplitMix64.
+	 * @param z The state to mix.
+	 * @return A well distributed 64-bit value.
+	 * @see <a href="https://prng.di.unimi.it/splitmix64.c">Source</a>
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -44,7 +44,25 @@ public class BitboardTests {
 		
 		List<Integer> moves = bitboard.getPossibleMovesWithoutSymmetries(1);
 		
-		Assertions.assertEquals(6, moves.size());
+		// The board is symmetrical along its diagonal: 1/3, 2/6 and 5/7 are equivalent, 8 is unique
+		Assertions.assertEquals(4, moves.size());
+	}
+	
+	@Test
+	public void testPartialWinsDifference() {
+		// X has an open two on the top row, O's diagonal two is blocked by X
+		Bitboard bitboard = Bitboard.fromString("XX_ _O_ __O");
+		
+		Assertions.assertEquals(1, bitboard.partialWinsDifference(GameStatus.ONE));
+		
+		// Both have an open two
+		bitboard = Bitboard.fromString("XX_ _OO ___");
+		
+		Assertions.assertEquals(0, bitboard.partialWinsDifference(GameStatus.ONE));
+		
+		bitboard = Bitboard.fromString("XX_ _O_ __O");
+		
+		Assertions.assertEquals(-1, bitboard.partialWinsDifference(GameStatus.TWO));
 	}
 	
 	@Test
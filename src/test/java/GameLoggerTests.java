@@ -0,0 +1,53 @@
+import com.jcvb.GameLogger;
+import com.jcvb.GameStatus;
+import com.jcvb.MoveTelemetry;
+import com.jcvb.SearchInfo;
+import com.jcvb.Stats;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class GameLoggerTests {
+	
+	@TempDir
+	Path directory;
+	
+	@Test
+	public void testCloseWritesEverything() throws IOException {
+		Path file = directory.resolve("results.csv");
+		GameLogger logger = new GameLogger(file);
+		Stats stats = new Stats("MiniMax", "RandomPlayer", GameStatus.ONE, 20, 19, "Depth: 4", "Zufall", 12, 0);
+		List<MoveTelemetry> moves = List.of(
+				new MoveTelemetry(0, GameStatus.ONE, 40, 1000, new SearchInfo(500, 4, 0.25, 30, -1)),
+				new MoveTelemetry(1, GameStatus.TWO, 36, 10, SearchInfo.NONE));
+		
+		// More than a batch, the last lines are still queued when close is called
+		int games = 200;
+		for (int i = 0; i < games; i++) {
+			logger.logGameResult(i, stats);
+			logger.logMoves(i, stats, moves);
+		}
+		logger.close();
+		
+		List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		Assertions.assertEquals(games + 1, lines.size());
+		Assertions.assertTrue(lines.get(games).startsWith((games - 1) + ",MiniMax,RandomPlayer,20,19,"));
+		
+		List<String> moveLines = Files.readAllLines(logger.getMovesFile(), StandardCharsets.UTF_8);
+		Assertions.assertEquals(2 * games + 1, moveLines.size());
+		Assertions.assertEquals((games - 1) + ",1,RandomPlayer,36,10,,,,,", moveLines.get(2 * games));
+		
+		// Logging after close is rejected without touching the files
+		logger.logGameResult(games, stats);
+		logger.logMoves(games, stats, moves);
+		logger.close();
+		Assertions.assertEquals(lines, Files.readAllLines(file, StandardCharsets.UTF_8));
+		Assertions.assertEquals(moveLines, Files.readAllLines(logger.getMovesFile(), StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,113 @@
+import com.jcvb.GameRecord;
+import com.jcvb.GameRecordCsv;
+import com.jcvb.GameRecordReader;
+import com.jcvb.GameRecordWriter;
+import com.jcvb.GameStatus;
+import com.jcvb.Perft;
+import com.jcvb.UltimateBoard;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class GameRecordTests {
+	
+	@TempDir
+	Path directory;
+	
+	@Test
+	public void testWriteAndRead() throws IOException {
+		UltimateBoard ultimateBoard = Perft.parsePosition("40 36 4 37 13 38 22");
+		byte[] moves = ultimateBoard.getMoves();
+		Assertions.assertArrayEquals(new byte[]{40, 36, 4, 37, 13, 38, 22}, moves);
+		
+		Path file = directory.resolve("games.bin");
+		try (GameRecordWriter writer = new GameRecordWriter(file)) {
+			for (int i = 0; i < 100; i++) {
+				writer.write(new GameRecord(i, 1000L * i, -i, GameStatus.values()[i % 3], 4, 3, i, 2 * i, "MiniMax", "Zufällig", "Depth: " + i, "", moves));
+			}
+		}
+		
+		GameRecordReader reader = new GameRecordReader(file);
+		List<GameRecord> records = new ArrayList<>();
+		reader.forEach(records::add);
+		
+		Assertions.assertEquals(100, reader.count());
+		Assertions.assertEquals(100, records.size());
+		
+		GameRecord record = records.get(42);
+		Assertions.assertEquals(42, record.gameNumber());
+		Assertions.assertEquals(-42, record.seed());
+		Assertions.assertEquals(GameStatus.ONE, record.winner());
+		Assertions.assertEquals("Zufällig", record.player2Name());
+		Assertions.assertEquals("Depth: 42", record.player1Param());
+		Assertions.assertEquals(ultimateBoard.toString(), record.replay().toString());
+	}
+	
+	@Test
+	public void testCsvRoundTrip() throws IOException {
+		Path records = directory.resolve("games.bin");
+		Path csv = directory.resolve("games.csv");
+		Path converted = directory.resolve("converted.bin");
+		
+		try (GameRecordWriter writer = new GameRecordWriter(records)) {
+			writer.write(new GameRecord(0, 1_700_000_000_000L, 0, GameStatus.TWO, 20, 20, 5, 7, "A", "B", "Ms/Move: 500 Depth: 9 (avg 7,5)", "x", new byte[]{40}));
+			writer.write(new GameRecord(1, 1_700_000_001_000L, 0, GameStatus.DRAW, 41, 40, 5, 7, "A", "B", "p", "q", new byte[0]));
+		}
+		
+		Assertions.assertEquals(2, GameRecordCsv.toCsv(records, csv));
+		Assertions.assertEquals(2, GameRecordCsv.fromCsv(csv, converted));
+		
+		List<GameRecord> result = new ArrayList<>();
+		new GameRecordReader(converted).forEach(result::add);
+		
+		// Everything but the moves survives the CSV
+		Assertions.assertEquals(GameStatus.TWO, result.get(0).winner());
+		Assertions.assertEquals("Ms/Move: 500 Depth: 9 (avg 7,5)", result.get(0).player1Param());
+		Assertions.assertEquals(1_700_000_000_000L, result.get(0).timestamp());
+		Assertions.assertEquals(7, result.get(0).player2AvgMs());
+		Assertions.assertEquals(GameStatus.DRAW, result.get(1).winner());
+		Assertions.assertEquals(41, result.get(1).player1Moves());
+		Assertions.assertEquals(0, result.get(1).moves().length);
+	}
+	
+	@Test
+	public void testParseUnquotedCsv() throws IOException {
+		Path csv = directory.resolve("old.csv");
+		Path converted = directory.resolve("old.bin");
+		
+		// Files written before the parameters were quoted
+		Files.writeString(csv, "header\n3,MiniMax,RandomPlayer,20,19,Depth: 4,Zufall,12,0,MiniMax,2024-01-02 03:04:05\n");
+		GameRecordCsv.fromCsv(csv, converted);
+		
+		GameRecord record = new GameRecordReader(converted).iterator().next();
+		Assertions.assertEquals(3, record.gameNumber());
+		Assertions.assertEquals("Depth: 4", record.player1Param());
+		Assertions.assertEquals("Zufall", record.player2Param());
+		Assertions.assertEquals(GameStatus.ONE, record.winner());
+		Assertions.assertEquals(12, record.player1AvgMs());
+	}
+	
+	@Test
+	public void testParseLegacyCsv() throws IOException {
+		Path converted = directory.resolve("legacy.bin");
+		
+		// The first files have no move counts
+		Assertions.assertEquals(100, GameRecordCsv.fromCsv(Path.of("game_results_1.csv"), converted));
+		
+		GameRecord record = new GameRecordReader(converted).iterator().next();
+		Assertions.assertEquals(0, record.gameNumber());
+		Assertions.assertEquals("RandomPlayer", record.player1Name());
+		Assertions.assertEquals("Zufall", record.player1Param());
+		Assertions.assertEquals("Ms/Move: 100", record.player2Param());
+		Assertions.assertEquals(100, record.player2AvgMs());
+		Assertions.assertEquals(GameStatus.TWO, record.winner());
+		Assertions.assertEquals(-1, record.player1Moves());
+		Assertions.assertEquals(-1, record.player2Moves());
+	}
+}
@@ -1,3 +1,278 @@
-public class MiniMaxTest {
+import com.jcvb.Bitboard;
+import com.jcvb.CachingHeuristic;
+import com.jcvb.GameStatus;
+import com.jcvb.Heuristic;
+import com.jcvb.KillerHistoryOrdering;
+import com.jcvb.MiniMax;
+import com.jcvb.MonteCarloGameSearchHeuristic;
+import com.jcvb.MoveOrdering;
+import com.jcvb.Perft;
+import com.jcvb.TranspositionTable;
+import com.jcvb.UltimateBoard;
+import com.jcvb.Xoroshiro128;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 
+public class MiniMaxTest {
+	
+	@Test
+	public void testMoveOrdering() {
+		Xoroshiro128 random = new Xoroshiro128(19);
+		int[] moves = new int[81];
+		
+		for (int game = 0; game < 200; game++) {
+			UltimateBoard ultimateBoard = new UltimateBoard();
+			int plies = 10 + random.nextInt(30);
+			for (int i = 0; i < plies && !ultimateBoard.isGameOver(); i++) {
+				ultimateBoard.makeMove(ultimateBoard.getRandomMove(random));
+			}
+			int count = ultimateBoard.getPossibleMoves(moves);
+			if (count < 2) {
+				continue;
+			}
+			
+			// Without any cutoffs yet: winning moves, other moves, moves giving the opponent the free choice
+			int hashMove = moves[random.nextInt(count)];
+			MoveOrdering ordering = new KillerHistoryOrdering();
+			ordering.order(ultimateBoard, moves, count, hashMove);
+			Assertions.assertEquals(hashMove, moves[0]);
+			
+			int previous = Integer.MAX_VALUE;
+			for (int i = 1; i < count; i++) {
+				int category = category(ultimateBoard, moves[i]);
+				Assertions.assertTrue(category <= previous, "Move " + moves[i] + " sorted too late");
+				previous = category;
+			}
+		}
+	}
+	
+	/**
+	 * Deterministic, unlike CustomHeuristic with its random jiggle.
+	 */
+	private static final Heuristic HEURISTIC = (ultimateBoard, player) -> {
+		GameStatus winner = ultimateBoard.getWinner();
+		if (winner == player) {
+			return Heuristic.WIN;
+		} else if (winner == player.next()) {
+			return -Heuristic.WIN;
+		}
+		return ultimateBoard.partialWinsDifference(player) * 30 + Integer.bitCount(ultimateBoard.getWonBoards(player.playerNumber())) * 7
+				+ Integer.bitCount(ultimateBoard.getCells(player.playerNumber(), 4));
+	};
+	
+	@Test
+	public void testPrincipalVariationSearch() {
+		Xoroshiro128 random = new Xoroshiro128(20);
+		
+		for (int game = 0; game < 30; game++) {
+			UltimateBoard ultimateBoard = new UltimateBoard();
+			int plies = 20 + random.nextInt(40);
+			for (int i = 0; i < plies && !ultimateBoard.isGameOver(); i++) {
+				ultimateBoard.makeMove(ultimateBoard.getRandomMove(random));
+			}
+			
+			MiniMax miniMax = new MiniMax(HEURISTIC, 4, new TranspositionTable(1 << 16));
+			GameStatus player = ultimateBoard.getCurrentPlayer();
+			int expected = minimax(ultimateBoard, 4, 0, player);
+			Assertions.assertEquals(expected, miniMax.minimax(ultimateBoard, 4, true, -Heuristic.WIN - 1, Heuristic.WIN + 1));
+			Assertions.assertEquals(expected, -miniMax.minimax(ultimateBoard, 4, false, -Heuristic.WIN - 1, Heuristic.WIN + 1));
+		}
+	}
+	
+	@Test
+	public void testGameWin() {
+		// X holds the top left and top middle board and wins the game by completing the top right one,
+		// O has won the bottom right board so X may choose freely. The forced boards are not checked by makeMove.
+		UltimateBoard ultimateBoard = new UltimateBoard();
+		for (int move : new int[]{0, 72, 1, 73, 2, 74, 9, 75, 10, 76, 11, 78, 18, 79, 19, 80}) {
+			ultimateBoard.makeMove(move);
+		}
+		
+		for (int depth = 1; depth <= 5; depth++) {
+			MiniMax miniMax = new MiniMax(HEURISTIC, depth, 0, 1, new TranspositionTable(1 << 16));
+			miniMax.setQuiet(true);
+			UltimateBoard copy = ultimateBoard.deepClone();
+			miniMax.play(copy);
+			
+			Assertions.assertEquals(20, copy.getLastMove());
+			Assertions.assertEquals(GameStatus.ONE, copy.getWinner());
+			Assertions.assertEquals(Heuristic.WIN - 1, miniMax.getSearchInfo().score());
+			Assertions.assertEquals(Heuristic.WIN - 1, miniMax.minimax(ultimateBoard, depth, true, -Heuristic.WIN - 1, Heuristic.WIN + 1));
+		}
+	}
+	
+	@Test
+	public void testDeadline() {
+		UltimateBoard ultimateBoard = Perft.parsePosition("40 36 4 37 13 38 22");
+		
+		for (int msPerMove : new int[]{50, 200}) {
+			MiniMax timed = new MiniMax(HEURISTIC, 40, msPerMove, 1, new TranspositionTable(1 << 16));
+			timed.setQuiet(true);
+			UltimateBoard copy = ultimateBoard.deepClone();
+			long start = System.nanoTime();
+			timed.play(copy);
+			long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+			
+			Assertions.assertTrue(elapsedMs < msPerMove + 100, "Searched " + elapsedMs + " ms for " + msPerMove + " ms");
+			int depth = timed.getSearchInfo().depth();
+			Assertions.assertTrue(depth > 0 && depth < 40);
+			
+			// The interrupted iteration is discarded, the move is the one of the last completed depth
+			MiniMax fixed = new MiniMax(HEURISTIC, depth, 0, 1, new TranspositionTable(1 << 16));
+			fixed.setQuiet(true);
+			UltimateBoard fixedCopy = ultimateBoard.deepClone();
+			fixed.play(fixedCopy);
+			Assertions.assertEquals(fixedCopy.getLastMove(), copy.getLastMove());
+			Assertions.assertEquals(fixed.getSearchInfo().score(), timed.getSearchInfo().score());
+		}
+	}
+	
+	@Test
+	public void testLazySmp() {
+		Xoroshiro128 random = new Xoroshiro128(7);
+		
+		for (int game = 0; game < 10; game++) {
+			UltimateBoard ultimateBoard = new UltimateBoard();
+			int plies = random.nextInt(30);
+			for (int i = 0; i < plies && !ultimateBoard.isGameOver(); i++) {
+				ultimateBoard.makeMove(ultimateBoard.getRandomMove(random));
+			}
+			if (ultimateBoard.isGameOver()) {
+				continue;
+			}
+			
+			MiniMax single = new MiniMax(HEURISTIC, 4, 0, 1, new TranspositionTable(1 << 16));
+			MiniMax parallel = new MiniMax(HEURISTIC, 4, 0, 4, new TranspositionTable(1 << 16));
+			single.setQuiet(true);
+			parallel.setQuiet(true);
+			
+			// The helpers search no deeper than the main thread, so their table entries don't change the value
+			UltimateBoard singleCopy = ultimateBoard.deepClone();
+			UltimateBoard parallelCopy = ultimateBoard.deepClone();
+			single.play(singleCopy);
+			parallel.play(parallelCopy);
+			
+			Assertions.assertTrue(ultimateBoard.getPossibleMoves().contains(parallelCopy.getLastMove()));
+			Assertions.assertEquals(4, parallel.getSearchInfo().depth());
+			Assertions.assertEquals(single.getSearchInfo().score(), parallel.getSearchInfo().score());
+		}
+	}
+	
+	@Test
+	public void testCachingHeuristic() {
+		int[] calls = new int[1];
+		CachingHeuristic cache = new CachingHeuristic((ultimateBoard, player) -> {
+			calls[0]++;
+			return HEURISTIC.evaluate(ultimateBoard, player);
+		}, 1 << 12);
+		
+		UltimateBoard ultimateBoard = new UltimateBoard();
+		Xoroshiro128 random = new Xoroshiro128(22);
+		while (!ultimateBoard.isGameOver()) {
+			for (GameStatus player : new GameStatus[]{GameStatus.ONE, GameStatus.TWO}) {
+				int expected = HEURISTIC.evaluate(ultimateBoard, player);
+				Assertions.assertEquals(expected, cache.evaluate(ultimateBoard, player));
+				Assertions.assertEquals(expected, cache.evaluate(ultimateBoard.deepClone(), player));
+			}
+			ultimateBoard.makeMove(ultimateBoard.getRandomMove(random));
+		}
+		
+		// The second evaluation of every position and player is a hit
+		Assertions.assertEquals(calls[0], cache.getMisses());
+		Assertions.assertEquals(cache.getMisses(), cache.getHits());
+		Assertions.assertEquals(0.5, cache.getHitRate());
+		
+		// The same values are found by the search
+		MiniMax cached = new MiniMax(cache, 3, new TranspositionTable(1 << 16));
+		MiniMax uncached = new MiniMax(HEURISTIC, 3, new TranspositionTable(1 << 16));
+		ultimateBoard = new UltimateBoard();
+		ultimateBoard.makeMove(40);
+		Assertions.assertEquals(uncached.minimax(ultimateBoard, 3, true, -Heuristic.WIN - 1, Heuristic.WIN + 1),
+				cached.minimax(ultimateBoard, 3, true, -Heuristic.WIN - 1, Heuristic.WIN + 1));
+	}
+	
+	@Test
+	public void testMonteCarloGameSearchHeuristic() {
+		Xoroshiro128 random = new Xoroshiro128(23);
+		int[] moves = new int[81];
+		int positions = 0;
+		
+		// Positions in which the player to move can win the game right away
+		while (positions < 10) {
+			UltimateBoard ultimateBoard = new UltimateBoard();
+			while (!ultimateBoard.isGameOver() && !canWin(ultimateBoard, moves)) {
+				ultimateBoard.makeMove(ultimateBoard.getRandomMove(random));
+			}
+			if (ultimateBoard.isGameOver()) {
+				continue;
+			}
+			positions++;
+			
+			GameStatus mover = ultimateBoard.getCurrentPlayer();
+			int count = ultimateBoard.getPossibleMoves(moves);
+			for (int threads : new int[]{1, 3}) {
+				MonteCarloGameSearchHeuristic heuristic = new MonteCarloGameSearchHeuristic(1000, threads);
+				String position = ultimateBoard.toString();
+				
+				Assertions.assertEquals(MonteCarloGameSearchHeuristic.SCALE, heuristic.evaluate(ultimateBoard, mover));
+				Assertions.assertEquals(-MonteCarloGameSearchHeuristic.SCALE, heuristic.evaluate(ultimateBoard, mover.next()));
+				Assertions.assertEquals(position, ultimateBoard.toString());
+				
+				// The other moves are dropped before all playouts are used, unless they win just as surely
+				Assertions.assertTrue(count == 1 || heuristic.getPlayouts() < 2L * count * 1000, heuristic.getPlayouts() + " playouts");
+			}
+		}
+		
+		UltimateBoard ultimateBoard = Perft.parsePosition("40 36");
+		int value = new MonteCarloGameSearchHeuristic(200).evaluate(ultimateBoard, GameStatus.ONE);
+		Assertions.assertTrue(Math.abs(value) < MonteCarloGameSearchHeuristic.SCALE);
+	}
+	
+	private static boolean canWin(UltimateBoard ultimateBoard, int[] moves) {
+		GameStatus mover = ultimateBoard.getCurrentPlayer();
+		int count = ultimateBoard.getPossibleMoves(moves);
+		for (int i = 0; i < count; i++) {
+			ultimateBoard.makeMove(moves[i]);
+			GameStatus winner = ultimateBoard.getWinner();
+			ultimateBoard.unmakeMove();
+			if (winner == mover) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Plain minimax without pruning, with wins scored by their distance like MiniMax does.
+	 */
+	private static int minimax(UltimateBoard ultimateBoard, int depth, int ply, GameStatus player) {
+		int[] moves = new int[81];
+		int count = ultimateBoard.getPossibleMoves(moves);
+		if (count == 0 || depth == 0) {
+			int value = HEURISTIC.evaluate(ultimateBoard, player);
+			return value == Heuristic.WIN ? value - ply : value == -Heuristic.WIN ? value + ply : value;
+		}
+		
+		boolean maximizing = ultimateBoard.getCurrentPlayer() == player;
+		int best = maximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			ultimateBoard.makeMove(moves[i]);
+			int value = minimax(ultimateBoard, depth - 1, ply + 1, player);
+			ultimateBoard.unmakeMove();
+			best = maximizing ? Math.max(best, value) : Math.min(best, value);
+		}
+		return best;
+	}
+	
+	private static int category(UltimateBoard ultimateBoard, int move) {
+		int player = ultimateBoard.getCurrentPlayer().playerNumber();
+		if (Bitboard.WINS[ultimateBoard.getCells(player, move / 9) | 1 << (move % 9)]) {
+			return 2;
+		}
+		
+		ultimateBoard.makeMove(move);
+		boolean freeChoice = ultimateBoard.getNextBitBoard() == -1;
+		ultimateBoard.unmakeMove();
+		return freeChoice ? 0 : 1;
+	}
 }
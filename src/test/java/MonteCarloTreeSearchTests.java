@@ -0,0 +1,191 @@
+import com.jcvb.GameStatus;
+import com.jcvb.MonteCarloTreeSearch;
+import com.jcvb.MonteCarloTreeSearchMultithreaded;
+import com.jcvb.Perft;
+import com.jcvb.Player;
+import com.jcvb.UltimateBoard;
+import com.jcvb.Xoroshiro128;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class MonteCarloTreeSearchTests {
+	
+	/**
+	 * X holds the top left and top middle board and wins the game by completing the top right one (move 20),
+	 * O has won the bottom right board so X may choose freely. The forced boards are not checked by makeMove.
+	 */
+	private static UltimateBoard gameWinPosition() {
+		UltimateBoard ultimateBoard = new UltimateBoard();
+		for (int move : new int[]{0, 72, 1, 73, 2, 74, 9, 75, 10, 76, 11, 78, 18, 79, 19, 80}) {
+			ultimateBoard.makeMove(move);
+		}
+		return ultimateBoard;
+	}
+	
+	@Test
+	public void testTreeParallel() {
+		MonteCarloTreeSearchMultithreaded mcts = new MonteCarloTreeSearchMultithreaded(GameStatus.ONE, 200, 4);
+		mcts.setQuiet(true);
+		
+		for (int i = 0; i < 3; i++) {
+			UltimateBoard ultimateBoard = gameWinPosition();
+			mcts.play(ultimateBoard);
+			
+			Assertions.assertEquals(20, ultimateBoard.getLastMove());
+			Assertions.assertEquals(GameStatus.ONE, ultimateBoard.getWinner());
+			
+			// Every virtual loss has been replaced by a result, so the root counts each iteration once
+			Assertions.assertTrue(mcts.getSearchInfo().nodes() > 0);
+			Assertions.assertEquals(mcts.getSearchInfo().nodes(), mcts.getRootVisits());
+			Assertions.assertTrue(mcts.getSearchInfo().score() > 900);
+		}
+		mcts.shutdown();
+	}
+	
+	@Test
+	public void testFullTree() {
+		// Raised to room for the root and its children, after that the leaves are only simulated
+		MonteCarloTreeSearch mcts = new MonteCarloTreeSearch(GameStatus.ONE, MonteCarloTreeSearch.Mode.SEQUENTIAL, 1, 10);
+		mcts.setQuiet(true);
+		mcts.setSeed(10);
+		
+		UltimateBoard ultimateBoard = new UltimateBoard();
+		Xoroshiro128 random = new Xoroshiro128(10);
+		for (int i = 0; i < 3 && !ultimateBoard.isGameOver(); i++) {
+			List<Integer> moves = ultimateBoard.getPossibleMoves();
+			mcts.play(ultimateBoard);
+			
+			Assertions.assertTrue(moves.contains(ultimateBoard.getLastMove()));
+			Assertions.assertTrue(mcts.getSearchInfo().treeSize() <= MonteCarloTreeSearch.MIN_NODE_BUDGET);
+			Assertions.assertTrue(mcts.getSearchInfo().nodes() > 0);
+			
+			ultimateBoard.makeMove(ultimateBoard.getRandomMove(random));
+		}
+	}
+	
+	@Test
+	public void testModes() {
+		Xoroshiro128 random = new Xoroshiro128(9);
+		
+		for (MonteCarloTreeSearch.Mode mode : MonteCarloTreeSearch.Mode.values()) {
+			MonteCarloTreeSearch mcts = new MonteCarloTreeSearch(GameStatus.ONE, mode, 3, 1 << 16, 100);
+			mcts.setQuiet(true);
+			
+			UltimateBoard ultimateBoard = gameWinPosition();
+			mcts.play(ultimateBoard);
+			Assertions.assertEquals(20, ultimateBoard.getLastMove(), mode.toString());
+			Assertions.assertEquals(GameStatus.ONE, ultimateBoard.getWinner(), mode.toString());
+			
+			// Some random position in the middle of a game
+			ultimateBoard = new UltimateBoard();
+			for (int i = 0; i < 20 && !ultimateBoard.isGameOver(); i++) {
+				ultimateBoard.makeMove(ultimateBoard.getRandomMove(random));
+			}
+			if (ultimateBoard.isGameOver()) {
+				continue;
+			}
+			List<Integer> moves = ultimateBoard.getPossibleMoves();
+			mcts.play(ultimateBoard);
+			Assertions.assertTrue(moves.contains(ultimateBoard.getLastMove()), mode.toString());
+			Assertions.assertTrue(mcts.getSearchInfo().nodes() > 0, mode.toString());
+		}
+	}
+	
+	@Test
+	public void testTreeReuse() {
+		MonteCarloTreeSearch mcts = new MonteCarloTreeSearch(GameStatus.ONE, MonteCarloTreeSearch.Mode.SEQUENTIAL, 1, 1 << 18, 200);
+		mcts.setQuiet(true);
+		mcts.setSeed(11);
+		
+		UltimateBoard ultimateBoard = new UltimateBoard();
+		mcts.play(ultimateBoard);
+		int ownMove = ultimateBoard.getLastMove();
+		Assertions.assertEquals(0, mcts.getReusedVisits());
+		Assertions.assertEquals(mcts.getSearchInfo().nodes(), mcts.getVisits());
+		
+		// Answer with the reply the search looked at most
+		int reply = -1;
+		for (int move : ultimateBoard.getPossibleMoves()) {
+			if (reply == -1 || mcts.getVisits(ownMove, move) > mcts.getVisits(ownMove, reply)) {
+				reply = move;
+			}
+		}
+		int replyVisits = mcts.getVisits(ownMove, reply);
+		Assertions.assertTrue(replyVisits > 0);
+		
+		// The subtree of the reply becomes the root with all its visits
+		ultimateBoard.makeMove(reply);
+		mcts.play(ultimateBoard);
+		Assertions.assertEquals(replyVisits, mcts.getReusedVisits());
+		Assertions.assertEquals(replyVisits + mcts.getSearchInfo().nodes(), mcts.getVisits());
+		
+		// A position which doesn't follow from the own move starts a new tree
+		UltimateBoard other = Perft.parsePosition("40 36");
+		List<Integer> moves = other.getPossibleMoves();
+		mcts.play(other);
+		Assertions.assertTrue(moves.contains(other.getLastMove()));
+		Assertions.assertEquals(0, mcts.getReusedVisits());
+		Assertions.assertEquals(mcts.getSearchInfo().nodes(), mcts.getVisits());
+	}
+	
+	@Test
+	public void testScoreScale() {
+		UltimateBoard drawn = drawnPosition();
+		Player[] players = {
+				new MonteCarloTreeSearch(GameStatus.ONE, MonteCarloTreeSearch.Mode.SEQUENTIAL, 1, 1 << 16, 100),
+				new MonteCarloTreeSearchMultithreaded(GameStatus.ONE, 100, 2)
+		};
+		
+		for (Player player : players) {
+			player.setQuiet(true);
+			
+			// Both players report -1000 to 1000, the win is certain and so is the draw
+			player.play(gameWinPosition());
+			Assertions.assertEquals(1000, player.getSearchInfo().score(), player.getName());
+			
+			player.play(drawn.deepClone());
+			Assertions.assertEquals(0, player.getSearchInfo().score(), player.getName());
+		}
+		((MonteCarloTreeSearchMultithreaded) players[1]).shutdown();
+	}
+	
+	/**
+	 * Searches random games for a running position in which every continuation ends in a draw.
+	 */
+	private static UltimateBoard drawnPosition() {
+		Xoroshiro128 random = new Xoroshiro128(18);
+		while (true) {
+			UltimateBoard ultimateBoard = new UltimateBoard();
+			while (!ultimateBoard.isGameOver()) {
+				ultimateBoard.makeMove(ultimateBoard.getRandomMove(random));
+			}
+			
+			for (int back = 2; back <= 4 && ultimateBoard.getWinner() == GameStatus.DRAW; back++) {
+				UltimateBoard position = ultimateBoard.deepClone();
+				for (int i = 0; i < back; i++) {
+					position.unmakeMove();
+				}
+				if (onlyDraws(position)) {
+					return position;
+				}
+			}
+		}
+	}
+	
+	private static boolean onlyDraws(UltimateBoard ultimateBoard) {
+		if (ultimateBoard.isGameOver()) {
+			return ultimateBoard.getWinner() == GameStatus.DRAW;
+		}
+		for (int move : ultimateBoard.getPossibleMoves()) {
+			ultimateBoard.makeMove(move);
+			boolean draw = onlyDraws(ultimateBoard);
+			ultimateBoard.unmakeMove();
+			if (!draw) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,88 @@
+import com.jcvb.BookPlayer;
+import com.jcvb.CustomHeuristic;
+import com.jcvb.MiniMax;
+import com.jcvb.OpeningBook;
+import com.jcvb.OpeningBookBuilder;
+import com.jcvb.Perft;
+import com.jcvb.RandomPlayer;
+import com.jcvb.UltimateBoard;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class OpeningBookTests {
+	
+	@TempDir
+	Path directory;
+	
+	/**
+	 * Book moves for the first 3 plies, searched to depth 2.
+	 */
+	private OpeningBook buildBook() throws IOException {
+		Path file = directory.resolve("book.bin");
+		OpeningBookBuilder builder = new OpeningBookBuilder(player -> new MiniMax(new CustomHeuristic(1), 2, 0, 1), 3);
+		builder.setQuiet(true);
+		int count = builder.build(file);
+		
+		OpeningBook book = new OpeningBook(file);
+		Assertions.assertEquals(count, book.size());
+		return book;
+	}
+	
+	@Test
+	public void testLookup() throws IOException {
+		OpeningBook book = buildBook();
+		
+		// Symmetric positions share an entry and get symmetric moves
+		UltimateBoard corner = Perft.parsePosition("0");
+		UltimateBoard otherCorner = Perft.parsePosition("80");
+		OpeningBook.Entry entry = book.lookup(corner);
+		OpeningBook.Entry otherEntry = book.lookup(otherCorner);
+		Assertions.assertNotNull(entry);
+		Assertions.assertNotNull(otherEntry);
+		Assertions.assertEquals(entry.key(), otherEntry.key());
+		Assertions.assertEquals(entry.score(), otherEntry.score());
+		Assertions.assertEquals(2, entry.depth());
+		Assertions.assertEquals(entry.move(), book.getMove(corner));
+		Assertions.assertEquals(book.getEntry(entry.key()).move(), book.getEntry(otherEntry.key()).move());
+		corner.makeMove(entry.move());
+		otherCorner.makeMove(otherEntry.move());
+		Assertions.assertEquals(corner.getCanonicalHash(), otherCorner.getCanonicalHash());
+		
+		Assertions.assertNotEquals(-1, book.getMove(new UltimateBoard()));
+		Assertions.assertEquals(-1, book.getMove(Perft.parsePosition("40 36 4 37 13")));
+		Assertions.assertNull(book.lookup(Perft.parsePosition("40 36 4 37 13")));
+		Assertions.assertNull(book.getEntry(Perft.parsePosition("40 36 4 37 13").getCanonicalHash()));
+	}
+	
+	@Test
+	public void testBookPlayer() throws IOException {
+		OpeningBook book = buildBook();
+		
+		// The book plays the opening, the wrapped player the rest
+		BookPlayer player = new BookPlayer(new RandomPlayer(), book);
+		UltimateBoard ultimateBoard = new UltimateBoard();
+		player.play(ultimateBoard);
+		Assertions.assertEquals(1, player.getBookMoves());
+		Assertions.assertEquals(0, player.getSearchInfo().nodes());
+		Assertions.assertEquals(2, player.getSearchInfo().depth());
+		ultimateBoard.makeMove(ultimateBoard.getPossibleMoves().get(0));
+		player.play(ultimateBoard);
+		ultimateBoard.makeMove(ultimateBoard.getPossibleMoves().get(0));
+		player.play(ultimateBoard);
+		Assertions.assertEquals(2, player.getBookMoves());
+		Assertions.assertEquals(5, ultimateBoard.getPly());
+		Assertions.assertEquals("Zufall Book: book.bin", player.getParam());
+	}
+	
+	@Test
+	public void testInvalidFile() throws IOException {
+		Path invalid = directory.resolve("invalid.bin");
+		Files.writeString(invalid, "no book");
+		Assertions.assertThrows(IOException.class, () -> new OpeningBook(invalid));
+	}
+}
@@ -0,0 +1,67 @@
+import com.jcvb.Perft;
+import com.jcvb.UltimateBoard;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class PerftTests {
+	
+	// Reached by random play, several games end within the next four moves
+	private static final String LATE_POSITION = "2 21 28 12 29 25 70 68 50 53 76 42 61 63 5 46 14 47 26 78 60 58 39 32 51 54 1 17 79 71 80 72 7 66 33 62 77 48 27 6";
+	
+	@Test
+	public void testStartPosition() {
+		long[] expected = new long[]{1, 81, 720, 6336, 55080, 473256};
+		UltimateBoard ultimateBoard = new UltimateBoard();
+		
+		for (int depth = 0; depth < expected.length; depth++) {
+			Assertions.assertEquals(expected[depth], Perft.perft(ultimateBoard, depth));
+		}
+	}
+	
+	@Test
+	public void testLatePosition() {
+		long[] expected = new long[]{1, 33, 326, 2828, 26516};
+		UltimateBoard ultimateBoard = Perft.parsePosition(LATE_POSITION);
+		String position = ultimateBoard.toString();
+		long canonicalHash = ultimateBoard.getCanonicalHash();
+		int boardScore = ultimateBoard.getBoardScore(0);
+		
+		for (int depth = 0; depth < expected.length; depth++) {
+			Assertions.assertEquals(expected[depth], Perft.perft(ultimateBoard, depth));
+		}
+		
+		// Perft skips the board scores and symmetric hashes, unmaking its moves restores them all the same
+		Assertions.assertEquals(position, ultimateBoard.toString());
+		Assertions.assertEquals(canonicalHash, ultimateBoard.getCanonicalHash());
+		Assertions.assertEquals(boardScore, ultimateBoard.getBoardScore(0));
+		
+		ultimateBoard.unmakeMove();
+		UltimateBoard previous = Perft.parsePosition(LATE_POSITION.substring(0, LATE_POSITION.lastIndexOf(' ')));
+		Assertions.assertEquals(previous.getCanonicalHash(), ultimateBoard.getCanonicalHash());
+		Assertions.assertEquals(previous.getBoardScore(0), ultimateBoard.getBoardScore(0));
+	}
+	
+	@Test
+	public void testDivide() {
+		UltimateBoard ultimateBoard = Perft.parsePosition(LATE_POSITION);
+		long[] sequential = Perft.divide(ultimateBoard, 4, 1);
+		long[] parallel = Perft.divide(ultimateBoard, 4, 4);
+		long total = 0;
+		
+		for (long nodes : sequential) {
+			total += nodes;
+		}
+		
+		Assertions.assertEquals(26516, total);
+		Assertions.assertArrayEquals(sequential, parallel);
+	}
+	
+	@Test
+	public void testParsePosition() {
+		Assertions.assertEquals(0, Perft.parsePosition("").getPly());
+		Assertions.assertEquals(3, Perft.parsePosition("40, 36 4").getPly());
+		
+		// The second move has to be made on board 4
+		Assertions.assertThrows(IllegalArgumentException.class, () -> Perft.parsePosition("40 0"));
+	}
+}
@@ -0,0 +1,101 @@
+import com.jcvb.CustomHeuristic;
+import com.jcvb.Game;
+import com.jcvb.GameStatus;
+import com.jcvb.LatencyHistogram;
+import com.jcvb.MiniMax;
+import com.jcvb.MoveTelemetry;
+import com.jcvb.RandomPlayer;
+import com.jcvb.SearchInfo;
+import com.jcvb.Stats;
+import com.jcvb.Tournament;
+import com.jcvb.Xoroshiro128;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TelemetryTests {
+	
+	@Test
+	public void testHistogramPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		Assertions.assertEquals(0, histogram.getPercentile(50));
+		
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000L);
+		}
+		
+		Assertions.assertEquals(1000, histogram.getCount());
+		Assertions.assertEquals(1_000_000, histogram.getMax());
+		Assertions.assertEquals(500_500, histogram.getMean(), 1e-9);
+		
+		// Percentiles are exact to the bucket width of about 3%
+		Assertions.assertEquals(500_000, histogram.getPercentile(50), 500_000 / 32.0);
+		Assertions.assertEquals(990_000, histogram.getPercentile(99), 990_000 / 32.0);
+		Assertions.assertEquals(1_000_000, histogram.getPercentile(100));
+		
+		LatencyHistogram small = new LatencyHistogram();
+		small.record(7);
+		Assertions.assertEquals(7, small.getPercentile(50));
+		histogram.add(small);
+		Assertions.assertEquals(1001, histogram.getCount());
+	}
+	
+	@Test
+	public void testGameTelemetry() {
+		// The random player draws from the generator of this thread
+		Xoroshiro128.seedCurrent(18);
+		Game game = new Game(new MiniMax(new CustomHeuristic(18), 2, 0, 1), new RandomPlayer(), true);
+		game.run();
+		
+		Stats stats = game.getStats();
+		List<MoveTelemetry> telemetry = game.getTelemetry();
+		Assertions.assertEquals(stats.player1_moves() + stats.player2_moves(), telemetry.size());
+		Assertions.assertEquals(game.getMoves().length, telemetry.size());
+		
+		for (int i = 0; i < telemetry.size(); i++) {
+			MoveTelemetry move = telemetry.get(i);
+			Assertions.assertEquals(i, move.ply());
+			Assertions.assertEquals(game.getMoves()[i], move.move());
+			Assertions.assertTrue(move.nanos() >= 0);
+			
+			if (move.player() == GameStatus.ONE) {
+				Assertions.assertTrue(move.search().nodes() > 0);
+				// MiniMax stops after depth 0 if there is only one distinct move
+				Assertions.assertTrue(move.search().depth() >= 0 && move.search().depth() <= 2);
+				Assertions.assertTrue(move.search().ttHitRate() >= 0 && move.search().ttHitRate() <= 1);
+			} else {
+				Assertions.assertEquals(SearchInfo.NONE, move.search());
+			}
+		}
+	}
+	
+	@Test
+	public void testTournamentSeeds() {
+		Map<Integer, Tournament.Result> first = playTournament(42);
+		Map<Integer, Tournament.Result> second = playTournament(42);
+		
+		// The same tournament seed replays every game, whichever thread plays it
+		Assertions.assertEquals(8, first.size());
+		for (int game = 0; game < 8; game++) {
+			Assertions.assertEquals(first.get(game).seed(), second.get(game).seed());
+			Assertions.assertArrayEquals(first.get(game).moves(), second.get(game).moves());
+		}
+		Assertions.assertNotEquals(first.get(0).seed(), first.get(1).seed());
+		Assertions.assertFalse(Arrays.equals(first.get(0).moves(), playTournament(43).get(0).moves()));
+	}
+	
+	private static Map<Integer, Tournament.Result> playTournament(long seed) {
+		Tournament.Entrant random = new Tournament.Entrant("RandomPlayer", player -> new RandomPlayer());
+		Tournament.Entrant other = new Tournament.Entrant("Other RandomPlayer", player -> new RandomPlayer());
+		Tournament tournament = new Tournament(3, true, seed).addPairing(random, other, 8, true);
+		
+		Map<Integer, Tournament.Result> results = new HashMap<>();
+		tournament.setListener(result -> results.put(result.gameNumber(), result));
+		tournament.run();
+		return results;
+	}
+}
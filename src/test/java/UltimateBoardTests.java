@@ -1,8 +1,13 @@
+import com.jcvb.Bitboard;
+import com.jcvb.CustomHeuristic;
+import com.jcvb.GameStatus;
 import com.jcvb.UltimateBoard;
+import com.jcvb.Xoroshiro128;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.Random;
 
 public class UltimateBoardTests {
 	
@@ -32,4 +37,269 @@ public class UltimateBoardTests {
 		// Full board should have no possible moves left
 		Assertions.assertEquals(0, ultimateBoard.getPossibleMoves().size());
 	}
+	
+	@Test
+	public void testUnmakeMove() {
+		UltimateBoard ultimateBoard = new UltimateBoard();
+		String empty = ultimateBoard.toString();
+		
+		// X wins board 0 on its diagonal, the forced board is not checked by makeMove
+		int[] moves = new int[]{0, 9, 4, 10, 8};
+		
+		for (int move : moves) {
+			ultimateBoard.makeMove(move);
+		}
+		
+		Assertions.assertEquals(GameStatus.ONE, ultimateBoard.getBoardStatus(0));
+		Assertions.assertEquals(8, ultimateBoard.getNextBitBoard());
+		Assertions.assertEquals(GameStatus.TWO, ultimateBoard.getCurrentPlayer());
+		
+		for (int i = 0; i < moves.length; i++) {
+			ultimateBoard.unmakeMove();
+		}
+		
+		Assertions.assertEquals(empty, ultimateBoard.toString());
+		Assertions.assertEquals(GameStatus.RUNNING, ultimateBoard.getBoardStatus(0));
+		Assertions.assertEquals(-1, ultimateBoard.getNextBitBoard());
+		Assertions.assertEquals(81, ultimateBoard.getPossibleMoves().size());
+	}
+	
+	@Test
+	public void testGetWinner() {
+		UltimateBoard ultimateBoard = new UltimateBoard();
+		
+		// X wins the top row of boards by taking the top row of each, O plays on board 8
+		int[] moves = new int[]{0, 72, 1, 73, 2, 74, 9, 75, 10, 76, 11, 78, 18, 79, 19, 80};
+		
+		for (int move : moves) {
+			ultimateBoard.makeMove(move);
+			Assertions.assertEquals(GameStatus.RUNNING, ultimateBoard.getWinner());
+		}
+		
+		ultimateBoard.makeMove(20);
+		
+		Assertions.assertEquals(GameStatus.ONE, ultimateBoard.getWinner());
+		Assertions.assertEquals(GameStatus.ONE, ultimateBoard.checkGameWon(GameStatus.ONE));
+		Assertions.assertTrue(ultimateBoard.isGameOver());
+		
+		ultimateBoard.unmakeMove();
+		
+		Assertions.assertEquals(GameStatus.RUNNING, ultimateBoard.getWinner());
+		Assertions.assertFalse(ultimateBoard.isGameOver());
+	}
+	
+	@Test
+	public void testGameOver() {
+		UltimateBoard ultimateBoard = new UltimateBoard();
+		
+		// O wins the bottom row of boards while X only holds two cells of each top board, forced boards are not checked
+		int[] moves = new int[]{0, 54, 1, 55, 9, 63, 10, 64, 18, 72, 19, 73, 30, 56, 31, 65, 32, 74};
+		for (int move : moves) {
+			ultimateBoard.makeMove(move);
+		}
+		
+		Assertions.assertEquals(GameStatus.TWO, ultimateBoard.getWinner());
+		Assertions.assertEquals(0, ultimateBoard.getPossibleMoves().size());
+		Assertions.assertEquals(0, ultimateBoard.getDistinctMoves(new int[81]));
+		Assertions.assertEquals(0, ultimateBoard.getPossibleMovesLow() | ultimateBoard.getPossibleMovesHigh());
+		Assertions.assertEquals(-1, ultimateBoard.getRandomMove(new Random(42)));
+		
+		// X completing the top row afterwards doesn't change the result
+		for (int move : new int[]{2, 40, 11, 41, 20}) {
+			ultimateBoard.makeMove(move);
+			Assertions.assertEquals(GameStatus.TWO, ultimateBoard.getWinner());
+		}
+		Assertions.assertEquals(0b111, ultimateBoard.getWonBoards(0) & 0b111);
+		
+		for (int i = 0; i < 6; i++) {
+			ultimateBoard.unmakeMove();
+		}
+		Assertions.assertEquals(GameStatus.RUNNING, ultimateBoard.getWinner());
+		Assertions.assertFalse(ultimateBoard.getPossibleMoves().isEmpty());
+	}
+	
+	@Test
+	public void testGetRandomMove() {
+		Random random = new Random(42);
+		
+		for (int game = 0; game < 100; game++) {
+			UltimateBoard ultimateBoard = new UltimateBoard();
+			
+			while (!ultimateBoard.isGameOver()) {
+				List<Integer> moves = ultimateBoard.getPossibleMoves();
+				int move = ultimateBoard.getRandomMove(random);
+				
+				Assertions.assertTrue(moves.contains(move));
+				Assertions.assertEquals(moves.size(), Long.bitCount(ultimateBoard.getPossibleMovesLow()) + Long.bitCount(ultimateBoard.getPossibleMovesHigh()));
+				
+				ultimateBoard.makeMove(move);
+			}
+		}
+	}
+	
+	@Test
+	public void testHash() {
+		UltimateBoard first = new UltimateBoard();
+		UltimateBoard second = new UltimateBoard();
+		long empty = first.getHash();
+		
+		// Both move orders end on the same cells with board 0 forced
+		for (int move : new int[]{4, 36, 3, 27}) {
+			first.makeMove(move);
+		}
+		for (int move : new int[]{3, 27, 4, 36}) {
+			second.makeMove(move);
+		}
+		
+		Assertions.assertEquals(first.getHash(), second.getHash());
+		Assertions.assertEquals(first.getHash(), first.deepClone().getHash());
+		
+		Assertions.assertNotEquals(empty, first.getHash());
+		
+		for (int i = 0; i < 4; i++) {
+			first.unmakeMove();
+		}
+		
+		Assertions.assertEquals(empty, first.getHash());
+	}
+	
+	@Test
+	public void testPlayRandomGame() {
+		for (long seed = 0; seed < 200; seed++) {
+			UltimateBoard ultimateBoard = new UltimateBoard();
+			
+			// Start some games from a position in the middle of the game
+			Xoroshiro128 opening = new Xoroshiro128(-seed);
+			for (int i = 0; i < seed % 20; i++) {
+				ultimateBoard.makeMove(ultimateBoard.getRandomMove(opening));
+			}
+			String position = ultimateBoard.toString();
+			
+			// The kernel has to draw the same moves as a game played with getRandomMove
+			GameStatus result = ultimateBoard.playRandomGame(new Xoroshiro128(seed));
+			Assertions.assertEquals(position, ultimateBoard.toString());
+			
+			Xoroshiro128 random = new Xoroshiro128(seed);
+			while (!ultimateBoard.isGameOver()) {
+				ultimateBoard.makeMove(ultimateBoard.getRandomMove(random));
+			}
+			Assertions.assertEquals(ultimateBoard.getWinner(), result);
+		}
+	}
+	
+	@Test
+	public void testIncrementalEvaluation() {
+		for (long seed = 0; seed < 100; seed++) {
+			UltimateBoard ultimateBoard = new UltimateBoard();
+			Xoroshiro128 random = new Xoroshiro128(seed);
+			CustomHeuristic heuristic = new CustomHeuristic(seed);
+			
+			while (!ultimateBoard.isGameOver()) {
+				ultimateBoard.makeMove(ultimateBoard.getRandomMove(random));
+				
+				// Unmaking has to restore the scores as well
+				if (random.nextInt(4) == 0) {
+					ultimateBoard.unmakeMove();
+					ultimateBoard.makeMove(ultimateBoard.getRandomMove(random));
+				}
+				
+				if (ultimateBoard.isGameOver()) {
+					break;
+				}
+				
+				// The same instance evaluates for whichever player it is asked for
+				for (GameStatus player : new GameStatus[]{GameStatus.ONE, GameStatus.TWO}) {
+					int expected = evaluate(ultimateBoard, player);
+					int actual = heuristic.evaluate(ultimateBoard, player);
+					
+					// Up to the random jiggle
+					Assertions.assertTrue(actual >= expected && actual < expected + 5, actual + " instead of " + expected);
+					Assertions.assertEquals(actual, heuristic.evaluate(ultimateBoard.deepClone(), player));
+				}
+			}
+			
+			GameStatus winner = ultimateBoard.getWinner();
+			if (winner != GameStatus.DRAW) {
+				Assertions.assertEquals(CustomHeuristic.WIN, heuristic.evaluate(ultimateBoard, winner));
+				Assertions.assertEquals(-CustomHeuristic.WIN, heuristic.evaluate(ultimateBoard, winner.next()));
+			}
+		}
+	}
+	
+	/**
+	 * The evaluation of CustomHeuristic computed from scratch, without the random jiggle.
+	 */
+	private static int evaluate(UltimateBoard ultimateBoard, GameStatus player) {
+		int value = 0;
+		int own = player.playerNumber();
+		int other = player.next().playerNumber();
+		
+		for (int i = 0; i < 9; i++) {
+			int ownCells = ultimateBoard.getCells(own, i);
+			int otherCells = ultimateBoard.getCells(other, i);
+			value += (Integer.bitCount(ownCells) - Integer.bitCount(otherCells)) * 10;
+			
+			GameStatus status = ultimateBoard.getBoardStatus(i);
+			if (status == player) {
+				value += 300;
+			} else if (status == player.next()) {
+				value -= 30;
+			} else if (status == GameStatus.DRAW) {
+				value -= 5;
+			}
+			
+			value += Bitboard.partialWinsDifference(ownCells, otherCells) * 30;
+			if ((ownCells & (1 << 4)) != 0) {
+				value++;
+			}
+		}
+		
+		if (ultimateBoard.getBoardStatus(4) == player) {
+			value += 200;
+		}
+		return value + ultimateBoard.partialWinsDifference(player) * 300;
+	}
+	
+	@Test
+	public void testSymmetries() {
+		UltimateBoard empty = new UltimateBoard();
+		int[] moves = new int[81];
+		Assertions.assertEquals(255, empty.getSymmetries());
+		Assertions.assertEquals(15, empty.getDistinctMoves(moves));
+		
+		for (int s = 0; s < 8; s++) {
+			for (int move = 0; move < 81; move++) {
+				Assertions.assertEquals(move, UltimateBoard.transformMove(UltimateBoard.inverseSymmetry(s), UltimateBoard.transformMove(s, move)));
+			}
+		}
+		
+		for (long seed = 0; seed < 50; seed++) {
+			UltimateBoard ultimateBoard = new UltimateBoard();
+			UltimateBoard[] transformed = new UltimateBoard[8];
+			for (int s = 0; s < 8; s++) {
+				transformed[s] = new UltimateBoard();
+			}
+			
+			Xoroshiro128 random = new Xoroshiro128(seed);
+			while (!ultimateBoard.isGameOver()) {
+				int move = ultimateBoard.getRandomMove(random);
+				ultimateBoard.makeMove(move);
+				
+				// Every transformed game is a legal game with the symmetric position
+				for (int s = 0; s < 8; s++) {
+					transformed[s].makeMove(UltimateBoard.transformMove(s, move));
+					Assertions.assertEquals(transformed[s].getHash(), ultimateBoard.getSymmetricHash(s));
+					Assertions.assertEquals(ultimateBoard.getCanonicalHash(), transformed[s].getCanonicalHash());
+					Assertions.assertEquals(ultimateBoard.getWinner(), transformed[s].getWinner());
+				}
+			}
+			
+			// Unmaking restores the symmetric hashes as well
+			int last = ultimateBoard.getLastMove();
+			long canonical = ultimateBoard.getCanonicalHash();
+			ultimateBoard.unmakeMove();
+			ultimateBoard.makeMove(last);
+			Assertions.assertEquals(canonical, ultimateBoard.deepClone().getCanonicalHash());
+		}
+	}
 }